@@ -0,0 +1,76 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Checks that messages are delivered in {@link DeliveryMode#EVENT} without any polling period
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EventMessengerIntegrationTest {
+    private static final int MESSAGE_COUNT = 100;
+    private final String testClientOneID = "eventClientOne";
+    private final String testClientTwoID = "eventClientTwo";
+    private MessengerServer server;
+    private TestClient testClientOne;
+    private final AtomicInteger testClientTwoDispatched = new AtomicInteger();
+
+    @BeforeAll
+    public void setupTest() throws DuplicateKeyException {
+        MessengerServer.killInstance();
+        server = MessengerServer.getInstance();
+
+        testClientOne = new TestClient(server, testClientOneID, testClientTwoID, () -> {});
+        TestClient testClientTwo = new TestClient(server, testClientTwoID, testClientOneID,
+                testClientTwoDispatched::incrementAndGet);
+
+        server.registerClientModule(testClientOne);
+        server.registerClientModule(testClientTwo);
+    }
+
+    @AfterAll
+    public void teardownTest() {
+        server.stopServer();
+        MessengerServer.killInstance();
+    }
+
+    @Test
+    public void testEventMessageSending() throws InterruptedException {
+        // The polling period should be ignored in event mode
+        server.startServer(DeliveryMode.EVENT, Long.MAX_VALUE);
+
+        // Send messages with idle gaps so the drain thread has to be woken repeatedly
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            testClientOne.run();
+            if (i % 10 == 0) {
+                Thread.sleep(5);
+            }
+        }
+
+        await().until(() -> testClientTwoDispatched.get() == MESSAGE_COUNT);
+    }
+}
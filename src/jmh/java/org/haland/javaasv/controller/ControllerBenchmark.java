@@ -0,0 +1,59 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.controller;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Controller#calculateNextOutput(double...)} for the rudder controllers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+    private double xtd = 2.5;
+    private double headingError = Math.toRadians(10);
+    private double throttle = 0.5;
+
+    private PIDController pidController;
+    private HitzController hitzController;
+
+    @Setup(Level.Trial)
+    public void setupControllers() {
+        pidController = new PIDController(10, 0.1, 0.5);
+        pidController.start();
+        hitzController = new HitzController(3, 5, -0.5);
+        hitzController.start();
+    }
+
+    @Benchmark
+    public double pidCalculateNextOutput() {
+        return pidController.calculateNextOutput(xtd);
+    }
+
+    @Benchmark
+    public double hitzCalculateNextOutput() {
+        return hitzController.calculateNextOutput(xtd, headingError, throttle);
+    }
+}
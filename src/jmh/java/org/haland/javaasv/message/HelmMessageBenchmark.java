@@ -0,0 +1,87 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.haland.javaasv.util.SerialUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link HelmMessage} construction, and compares the old string-based helm message encoding with the
+ * primitive encoding into a reusable buffer. Run with
+ * <code>-PjmhProfilers=gc</code> to see allocations per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelmMessageBenchmark {
+    private final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+    private double throttle = 0.75;
+    private double rudder = -0.123456;
+    private HelmMessage message;
+
+    @Setup(Level.Trial)
+    public void setupMessage() throws MessageTypeException {
+        message = new HelmMessage("pilot", "helm", 0, MessageInterface.MessagePriority.NORMAL, throttle, rudder);
+    }
+
+    /**
+     * The encoding used before setpoints were stored as primitives: concatenate, then convert to bytes
+     */
+    @Benchmark
+    public byte[] legacyStringEncoding() {
+        return SerialUtil.START_MESSAGE_CHAR.concat(String.valueOf(throttle)).concat(",")
+                .concat(String.valueOf(rudder)).concat(SerialUtil.END_MESSAGE_CHAR)
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public HelmMessage construction() throws MessageTypeException {
+        return new HelmMessage("pilot", "helm", 0, MessageInterface.MessagePriority.NORMAL, throttle, rudder);
+    }
+
+    @Benchmark
+    public int primitiveEncoding() throws MessageTypeException {
+        buffer.clear();
+        return message.encode(buffer);
+    }
+
+    /**
+     * The parsing used before setpoints were stored as primitives
+     */
+    @Benchmark
+    public double legacyStringParsing() {
+        String helmMessage = "<0.75,-0.123456>";
+        return Double.parseDouble(helmMessage.replaceAll("[<>]", "").split(",")[0])
+                + Double.parseDouble(helmMessage.replaceAll("[<>]", "").split(",")[1]);
+    }
+
+    @Benchmark
+    public double primitiveParsing() throws MessageTypeException {
+        MessageContent content = message.getMessageContents();
+        return content.getHelmThrottleValue() + content.getHelmRudderValue();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MessengerServer#dispatch(MessageInterface)} latency with 1, 4, and 16 producers contending for the
+ * server while it is being drained
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessengerServerBenchmark {
+    private static final String CLIENT_ID = "benchmarkClient";
+    private static final long SERVER_PERIOD = 1;
+
+    private MessengerServer server;
+    private MessageInterface message;
+
+    @Setup(Level.Trial)
+    public void setupServer() throws DuplicateKeyException, MessageTypeException {
+        server = MessengerServer.getInstance();
+        server.registerClientModule(new MessengerClientInterface() {
+            @Override
+            public void dispatch(MessageInterface message) {
+            }
+
+            @Override
+            public String getClientID() {
+                return CLIENT_ID;
+            }
+
+            @Override
+            public MessageInterface.MessageType getClientType() {
+                return MessageInterface.MessageType.STRING;
+            }
+        });
+        message = new SimpleMessage("benchmark", CLIENT_ID, System.currentTimeMillis(),
+                MessageInterface.MessagePriority.NORMAL, new MessageContent("foo", null, null));
+        server.startServer(SERVER_PERIOD);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardownServer() {
+        MessengerServer.killInstance();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void dispatchOneProducer() {
+        server.dispatch(message);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void dispatchFourProducers() {
+        server.dispatch(message);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void dispatchSixteenProducers() {
+        server.dispatch(message);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MessengerServer} throughput from {@link MessengerServer#dispatch(MessageInterface)} through
+ * {@link MessengerServer#run()} to the destination client's mailbox
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessengerThroughputBenchmark {
+    private static final String CLIENT_ID = "benchmarkClient";
+    private static final int BATCH_SIZE = 100;
+
+    private MessengerServer server;
+    private MessageInterface message;
+
+    @Setup(Level.Trial)
+    public void setupServer() throws DuplicateKeyException, MessageTypeException {
+        server = MessengerServer.getInstance();
+        server.registerClientModule(new MessengerClientInterface() {
+            @Override
+            public void dispatch(MessageInterface message) {
+            }
+
+            @Override
+            public String getClientID() {
+                return CLIENT_ID;
+            }
+
+            @Override
+            public MessageInterface.MessageType getClientType() {
+                return MessageInterface.MessageType.HELM;
+            }
+        });
+        message = new HelmMessage("benchmark", CLIENT_ID, System.currentTimeMillis(),
+                MessageInterface.MessagePriority.NORMAL, 0.5, 0.1);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardownServer() {
+        MessengerServer.killInstance();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void dispatchAndRun() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            server.dispatch(message);
+        }
+        server.run();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.pilot;
+
+import net.sf.marineapi.nmea.parser.SentenceFactory;
+import net.sf.marineapi.nmea.sentence.RMCSentence;
+import net.sf.marineapi.nmea.sentence.Sentence;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks decoding one second of GPS output at 10 Hz with RMC, GGA and VTG enabled
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NmeaDecoderBenchmark {
+    private static final String[] SENTENCES = {
+            "$GPGGA,123519,4807.038,S,01131.000,W,1,08,0.9,545.4,M,46.9,M,,*48",
+            "$GPRMC,123519.50,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*41",
+            "$GPVTG,054.7,T,034.4,M,005.5,N,010.2,K,A*25"
+    };
+    private static final int UPDATES = 10;
+
+    private byte[] stream;
+    private String[] lines;
+    private NmeaDecoder decoder;
+    private Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setupStream(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        StringBuilder builder = new StringBuilder();
+        lines = new String[SENTENCES.length * UPDATES];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = SENTENCES[i % SENTENCES.length];
+            builder.append(lines[i]).append("\r\n");
+        }
+        stream = builder.toString().getBytes(StandardCharsets.US_ASCII);
+        decoder = new NmeaDecoder((type, d) -> this.blackhole.consume(d.getLatitude()));
+    }
+
+    @Benchmark
+    public long nmeaDecoder() {
+        decoder.accept(stream, 0, stream.length);
+        return decoder.getSentenceCount();
+    }
+
+    /**
+     * The marineapi parsing that {@link NmeaDecoder} replaced, without the reader thread
+     */
+    @Benchmark
+    public void marineApi(Blackhole blackhole) {
+        SentenceFactory factory = SentenceFactory.getInstance();
+        for (String line : lines) {
+            Sentence sentence = factory.createParser(line);
+            if (sentence instanceof RMCSentence) {
+                RMCSentence rmc = (RMCSentence) sentence;
+                blackhole.consume(rmc.getPosition());
+                blackhole.consume(rmc.getCourse());
+                blackhole.consume(rmc.getTime());
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.config.AllConfig;
+import org.haland.javaasv.config.BaseConfig;
+import org.haland.javaasv.config.RouteConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks loading a route file with {@link RouteParser}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteParserBenchmark {
+    @Param({"10000", "1000000"})
+    private int waypointCount;
+
+    private File routeFile;
+    private File binaryFile;
+    private File propertyDir;
+    private File propertyFile;
+    private AllConfig config;
+
+    @Setup(Level.Trial)
+    public void writeRouteFile() throws IOException {
+        routeFile = File.createTempFile("route", ".csv");
+        try (PrintWriter writer = new PrintWriter(routeFile)) {
+            for (int i = 0; i < waypointCount; i++) {
+                // Seven decimal places, about a centimeter, as route planners usually write
+                writer.printf(Locale.ROOT, "%.7f, %.7f, .0001, NEXT_WAYPOINT%n", 44.9187 + i * 1e-5,
+                        -92.8435 - i * 1e-5);
+            }
+        }
+
+        binaryFile = File.createTempFile("route", ".asvr");
+        try {
+            RouteParser.convertFileRoute(routeFile, binaryFile);
+        } catch (RouteParseException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // Point the route config at the file, as route.type=FILE does on the ASV
+        propertyDir = Files.createTempDirectory("properties").toFile();
+        propertyFile = new File(propertyDir, "route.properties");
+        try (PrintWriter writer = new PrintWriter(propertyFile)) {
+            writer.println("route.type=FILE");
+            writer.println("route.file_dir=" + routeFile.getParent() + File.separator);
+            writer.println("route.filename=" + routeFile.getName());
+            writer.println("route.two_point.start=44.9187, -92.8435");
+            writer.println("route.two_point.end=44.9187, -92.8439");
+            writer.println("route.two_point.tolerance=0.0001");
+            writer.println("route.paged.page_size=1024");
+            writer.println("route.paged.cache_pages=4");
+        }
+        BaseConfig.setPropertyFileDir(propertyDir.getPath() + File.separator);
+        config = new AllConfig(null, null, null, new RouteConfig());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteRouteFile() {
+        routeFile.delete();
+        binaryFile.delete();
+        propertyFile.delete();
+        propertyDir.delete();
+    }
+
+    @Benchmark
+    public WaypointColumns readColumns() throws IOException, RouteParseException {
+        return RouteFileReader.read(routeFile.toPath());
+    }
+
+    /**
+     * Loads the route as the ASV does from its config
+     */
+    @Benchmark
+    public RouteInterface configuredFileRoute() throws IOException {
+        try (RouteParser parser = new RouteParser(config)) {
+            return parser.getRoute();
+        }
+    }
+
+    @Benchmark
+    public RouteInterface loadFileRoute() throws IOException, RouteParseException {
+        return RouteParser.loadFileRoute(routeFile);
+    }
+
+    @Benchmark
+    public RouteInterface loadColumnarRoute() throws IOException, RouteParseException {
+        return RouteParser.loadColumnarRoute(routeFile);
+    }
+
+    @Benchmark
+    public RouteInterface loadBinaryRoute() throws IOException {
+        return RouteParser.loadBinaryRoute(binaryFile);
+    }
+
+    /**
+     * The Scanner and String.split parser used before {@link RouteFileReader}
+     */
+    @Benchmark
+    public RouteInterface legacyScanner() throws IOException {
+        SegmentedRoute route = new SegmentedRoute();
+        try (Scanner scanner = new Scanner(routeFile)) {
+            while (scanner.hasNextLine()) {
+                String[] values = scanner.nextLine().strip().split(",");
+                Arrays.parallelSetAll(values, (i) -> values[i].strip());
+                route.addWaypoint(new Waypoint(Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                        Double.parseDouble(values[2]), WaypointInterface.WaypointBehavior.valueOf(values[3])));
+            }
+        }
+        return route;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks nearest-segment queries against a linear scan over a 100k waypoint survey route
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteSegmentIndexBenchmark {
+    private static final int LEGS = 100;
+    private static final int WAYPOINTS_PER_LEG = 1000;
+    private static final double SPACING = 0.00001;
+
+    private SegmentedRoute route;
+    private RouteSegmentIndex index;
+    private double lat;
+    private double lon;
+
+    @Setup(Level.Trial)
+    public void buildRoute() {
+        route = new SegmentedRoute();
+        for (int leg = 0; leg < LEGS; leg++) {
+            for (int i = 0; i < WAYPOINTS_PER_LEG; i++) {
+                int column = leg % 2 == 0 ? i : WAYPOINTS_PER_LEG - 1 - i;
+                route.addWaypoint(new Waypoint(44.9 + leg * SPACING * 20, -92.8 + column * SPACING, 0.0001,
+                        WaypointInterface.WaypointBehavior.NEXT_WAYPOINT));
+            }
+        }
+        index = new RouteSegmentIndex(route);
+        lat = Math.toRadians(44.9 + 57.3 * SPACING * 20);
+        lon = Math.toRadians(-92.8 + 612.4 * SPACING);
+    }
+
+    @Benchmark
+    public int indexedNearestSegment() {
+        return index.nearestSegment(lat, lon);
+    }
+
+    @Benchmark
+    public int linearScanNearestSegment() {
+        double x = Math.cos(lat) * Math.cos(lon);
+        double y = Math.cos(lat) * Math.sin(lon);
+        double z = Math.sin(lat);
+        int best = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < route.getSegmentCount(); i++) {
+            double distance = route.getSegment(i).angularDistanceTo(x, y, z);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RouteSegmentIndex buildIndex() {
+        return new RouteSegmentIndex(route);
+    }
+}
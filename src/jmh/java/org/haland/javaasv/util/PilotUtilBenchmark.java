@@ -0,0 +1,97 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.util;
+
+import org.haland.javaasv.route.RouteSegment;
+import org.haland.javaasv.route.Waypoint;
+import org.haland.javaasv.route.WaypointInterface;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link PilotUtil} calculations the pilot runs every loop
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PilotUtilBenchmark {
+    private double[] previousWaypoint = {44.9187, -92.8435};
+    private double[] nextWaypoint = {44.9187, -92.8439};
+    private double[] position = {44.91872, -92.84371};
+
+    private NavigationKernel kernel;
+
+    @Setup(Level.Trial)
+    public void setupKernel() {
+        kernel = new NavigationKernel();
+        kernel.setSegment(new RouteSegment(
+                new Waypoint(previousWaypoint, 0, WaypointInterface.WaypointBehavior.NEXT_WAYPOINT),
+                new Waypoint(nextWaypoint, 0, WaypointInterface.WaypointBehavior.NEXT_WAYPOINT)));
+    }
+
+    @Benchmark
+    public double calculateCrossTrackDistance() {
+        return PilotUtil.calculateCrossTrackDistance(previousWaypoint, nextWaypoint, position, EarthRadius.METERS);
+    }
+
+    @Benchmark
+    public double calculateInitialBearing() {
+        return PilotUtil.calculateInitialBearing(position, nextWaypoint);
+    }
+
+    @Benchmark
+    public double calculateDistance() {
+        return PilotUtil.calculateDistance(position, nextWaypoint);
+    }
+
+    @Benchmark
+    public double calculateCrossTrackAngle() {
+        return PilotUtil.calculateCrossTrackAngle(Math.toRadians(previousWaypoint[0]),
+                Math.toRadians(previousWaypoint[1]), Math.toRadians(nextWaypoint[0]), Math.toRadians(nextWaypoint[1]),
+                Math.toRadians(position[0]), Math.toRadians(position[1]));
+    }
+
+    /**
+     * Bearing, distance, XTD and along-track distance on a precomputed segment, as the pilot uses them every loop
+     */
+    @Benchmark
+    public void navigationKernel(Blackhole blackhole) {
+        kernel.update(Math.toRadians(position[0]), Math.toRadians(position[1]));
+        blackhole.consume(kernel.getBearingToNext());
+        blackhole.consume(kernel.getAngularDistanceToNext());
+        blackhole.consume(kernel.getCrossTrackAngle());
+        blackhole.consume(kernel.getAlongTrackAngle());
+    }
+
+    /**
+     * The three separate {@link PilotUtil} calls the kernel replaces
+     */
+    @Benchmark
+    public void separateCalculations(Blackhole blackhole) {
+        blackhole.consume(PilotUtil.calculateInitialBearing(position, nextWaypoint));
+        blackhole.consume(PilotUtil.calculateDistance(position, nextWaypoint));
+        blackhole.consume(PilotUtil.calculateCrossTrackDistance(previousWaypoint, nextWaypoint, position,
+                EarthRadius.METERS));
+    }
+}
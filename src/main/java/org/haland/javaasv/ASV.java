@@ -24,13 +24,16 @@ import org.haland.javaasv.controller.PIDController;
 import org.haland.javaasv.controller.TrivialController;
 import org.haland.javaasv.helm.ArduinoHelm;
 import org.haland.javaasv.helm.HelmArduino;
+import org.haland.javaasv.message.DeliveryMode;
 import org.haland.javaasv.message.MessengerServer;
 import org.haland.javaasv.pilot.GPSHatParser;
+import org.haland.javaasv.pilot.PositionEstimator;
 import org.haland.javaasv.pilot.SimplePilot;
 import org.haland.javaasv.route.RouteInterface;
 import org.haland.javaasv.route.RouteParser;
 import org.tinylog.Logger;
 
+import java.io.IOException;
 
 /**
  * Our entry point
@@ -41,6 +44,7 @@ public class ASV {
 
     private MessengerServer server;
     private long serverPeriod;
+    private DeliveryMode serverDeliveryMode;
 
     private ArduinoHelm helm;
     private HelmArduino helmArduino;
@@ -49,12 +53,14 @@ public class ASV {
     private SimplePilot pilot;
     private static final String PILOT_ID = "pilot";
     private long pilotPeriod;
+    private long pilotFixTimeout;
 
     private TrivialController throttleController;
     private PIDController rudderController;
 
     private GPSHatParser gps;
 
+    private RouteParser routeParser;
     private RouteInterface route;
 
     private ASV() {
@@ -62,10 +68,15 @@ public class ASV {
 
         // Get server and client data from config
         this.serverPeriod = config.getAsvConfig().getServerPeriod();
+        this.serverDeliveryMode = config.getAsvConfig().getServerDeliveryMode();
         this.pilotPeriod = config.getAsvConfig().getPilotPeriod();
+        this.pilotFixTimeout = config.getAsvConfig().getPilotFixTimeout();
 
         // Get the server instance
         this.server = MessengerServer.getInstance();
+        server.setMailboxDefaults(config.getAsvConfig().getMailboxCapacity(),
+                config.getAsvConfig().getMailboxOverflowPolicy());
+        server.setConflatedTypes(config.getAsvConfig().getConflatedMessageTypes());
 
         // Construct a new HelmArduino and ArduinoHelm
         this.helmArduino = new HelmArduino(config);
@@ -79,21 +90,45 @@ public class ASV {
         this.rudderController = new PIDController(config.getControllerConfig().getRudderPIDConfig());
 
         // Get a simple route from the config
-        this.route = new RouteParser(config).getRoute();
+        this.routeParser = new RouteParser(config);
+        this.route = routeParser.getRoute();
 
         // Construct the pilot and assign the route
-        this.pilot = new SimplePilot(PILOT_ID, server, helm, throttleController, rudderController, gps);
+        // The pilot runs faster than the GPS, so it steers on an estimate extrapolated between fixes
+        this.pilot = new SimplePilot(PILOT_ID, server, helm, throttleController, rudderController,
+                new PositionEstimator(gps));
         pilot.setCurrentRoute(route);
     }
 
     private void start() throws InterruptedException {
-        server.startServer(serverPeriod);
+        server.startServer(serverDeliveryMode, serverPeriod);
         gps.startGPS();
-        pilot.startPilot(pilotPeriod);
+        pilot.startPilot(pilotPeriod, pilotFixTimeout).whenComplete((result, e) -> {
+            if (e != null) {
+                // Without a pilot nothing is steering, so exit rather than keep the server running
+                Logger.error("Pilot did not start, shutting down: " + e);
+                System.exit(1);
+            }
+        });
+    }
+
+    /**
+     * Stops the pilot and server and releases the route when the JVM exits
+     */
+    private void stop() {
+        Logger.info("Stopping ASV");
+        pilot.stopPilot();
+        server.stopServer();
+        try {
+            routeParser.close();
+        } catch (IOException e) {
+            Logger.error(e, "Could not close route");
+        }
     }
 
     public static void main(String[] args) throws InterruptedException {
         ASV asv = new ASV();
+        Runtime.getRuntime().addShutdownHook(new Thread(asv::stop, "asv-shutdown"));
         asv.start();
     }
 
@@ -18,7 +18,13 @@
 
 package org.haland.javaasv.config;
 
+import org.haland.javaasv.message.DeliveryMode;
+import org.haland.javaasv.message.MessageInterface;
+import org.haland.javaasv.message.OverflowPolicy;
+
+import java.util.EnumSet;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * {@link BaseConfig} implementation for high-level ASV configuration
@@ -27,7 +33,12 @@ public class ASVConfig extends BaseConfig {
     private static final String PROPERTY_FILE_NAME = "asv.properties";
 
     private long serverPeriod;
+    private DeliveryMode serverDeliveryMode;
+    private int mailboxCapacity;
+    private OverflowPolicy mailboxOverflowPolicy;
+    private Set<MessageInterface.MessageType> conflatedMessageTypes;
     private long pilotPeriod;
+    private long pilotFixTimeout;
 
     @Override
     protected String getPropertyFileName() {
@@ -37,14 +48,50 @@ public class ASVConfig extends BaseConfig {
     @Override
     protected void configure(Properties properties) {
         this.serverPeriod = getLongPropertyValue("server.period", properties);
+        this.serverDeliveryMode = DeliveryMode.valueOf(getStringPropertyValue("server.delivery_mode", properties));
+        this.mailboxCapacity = getIntPropertyValue("server.mailbox.capacity", properties);
+        this.mailboxOverflowPolicy =
+                OverflowPolicy.valueOf(getStringPropertyValue("server.mailbox.overflow", properties));
+
+        // Comma-separated list of message types, may be empty
+        this.conflatedMessageTypes = EnumSet.noneOf(MessageInterface.MessageType.class);
+        for (String type : getStringPropertyValue("server.mailbox.conflate", properties).split(",")) {
+            if (!type.isBlank()) {
+                conflatedMessageTypes.add(MessageInterface.MessageType.valueOf(type.strip()));
+            }
+        }
         this.pilotPeriod = getLongPropertyValue("pilot.period", properties);
+        this.pilotFixTimeout = getLongPropertyValue("pilot.fix_timeout", properties);
     }
 
     public long getServerPeriod() {
         return serverPeriod;
     }
 
+    public DeliveryMode getServerDeliveryMode() {
+        return serverDeliveryMode;
+    }
+
+    public int getMailboxCapacity() {
+        return mailboxCapacity;
+    }
+
+    public OverflowPolicy getMailboxOverflowPolicy() {
+        return mailboxOverflowPolicy;
+    }
+
+    public Set<MessageInterface.MessageType> getConflatedMessageTypes() {
+        return conflatedMessageTypes;
+    }
+
     public long getPilotPeriod() {
         return pilotPeriod;
     }
+
+    /**
+     * @return the time in milliseconds the pilot waits for a GPS fix before giving up, or 0 to wait indefinitely
+     */
+    public long getPilotFixTimeout() {
+        return pilotFixTimeout;
+    }
 }
@@ -38,6 +38,9 @@ public class RouteConfig extends BaseConfig {
     private double[] twoPointRouteEnd;
     private double twoPointRouteTolerance;
 
+    private int pagedRoutePageSize;
+    private int pagedRouteCachePages;
+
     @Override
     protected String getPropertyFileName() {
         return propertyFileName;
@@ -61,6 +64,8 @@ public class RouteConfig extends BaseConfig {
         this.twoPointRouteStart = getDoubleArrayPropertyValue("route.two_point.start", properties);
         this.twoPointRouteEnd = getDoubleArrayPropertyValue("route.two_point.end", properties);
         this.twoPointRouteTolerance = getDoublePropertyValue("route.two_point.tolerance", properties);
+        this.pagedRoutePageSize = getIntPropertyValue("route.paged.page_size", properties);
+        this.pagedRouteCachePages = getIntPropertyValue("route.paged.cache_pages", properties);
     }
 
     public String getRouteFileName() {
@@ -94,4 +99,18 @@ public class RouteConfig extends BaseConfig {
     public double getTwoPointRouteTolerance() {
         return twoPointRouteTolerance;
     }
+
+    /**
+     * @return the number of waypoints per page of a {@link RouteType#PAGED} route
+     */
+    public int getPagedRoutePageSize() {
+        return pagedRoutePageSize;
+    }
+
+    /**
+     * @return the number of pages of a {@link RouteType#PAGED} route to keep in memory
+     */
+    public int getPagedRouteCachePages() {
+        return pagedRouteCachePages;
+    }
 }
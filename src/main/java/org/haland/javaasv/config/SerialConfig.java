@@ -18,7 +18,12 @@
 
 package org.haland.javaasv.config;
 
+import org.haland.javaasv.helm.HelmProtocol;
+import org.haland.javaasv.pilot.GNSSConstellation;
+
+import java.util.EnumSet;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * {@link BaseConfig} implementation for serial configuration data
@@ -28,6 +33,13 @@ public class SerialConfig extends BaseConfig {
 
     private String arduinoPort;
     private String gpsPort;
+    private HelmProtocol arduinoProtocol;
+    private int gpsBaudRate;
+    private int gpsOutputMask;
+    private int gpsUpdateRate;
+    private Set<GNSSConstellation> gpsConstellations;
+    private long gpsAckTimeout;
+    private long gpsStallTimeout;
 
     @Override
     protected String getPropertyFileName() {
@@ -38,6 +50,20 @@ public class SerialConfig extends BaseConfig {
     protected void configure(Properties properties) {
         this.arduinoPort = getStringPropertyValue("serial.port.arduino", properties);
         this.gpsPort = getStringPropertyValue("serial.port.gps", properties);
+        this.arduinoProtocol = HelmProtocol.valueOf(getStringPropertyValue("serial.arduino.protocol", properties));
+        this.gpsBaudRate = getIntPropertyValue("serial.gps.baud_rate", properties);
+        this.gpsOutputMask = getIntPropertyValue("serial.gps.output_mask", properties);
+        this.gpsUpdateRate = getIntPropertyValue("serial.gps.update_rate", properties);
+
+        // Comma-separated list of constellations, may be empty to leave the module's setting alone
+        this.gpsConstellations = EnumSet.noneOf(GNSSConstellation.class);
+        for (String constellation : getStringPropertyValue("serial.gps.constellations", properties).split(",")) {
+            if (!constellation.isBlank()) {
+                gpsConstellations.add(GNSSConstellation.valueOf(constellation.strip()));
+            }
+        }
+        this.gpsAckTimeout = getLongPropertyValue("serial.gps.ack_timeout", properties);
+        this.gpsStallTimeout = getLongPropertyValue("serial.gps.stall_timeout", properties);
     }
 
     public String getArduinoPort() {
@@ -47,4 +73,47 @@ public class SerialConfig extends BaseConfig {
     public String getGpsPort() {
         return gpsPort;
     }
+
+    public HelmProtocol getArduinoProtocol() {
+        return arduinoProtocol;
+    }
+
+    public int getGpsBaudRate() {
+        return gpsBaudRate;
+    }
+
+    /**
+     * @return the mask of NMEA sentences the GPS module outputs, such as 98 for GGA, RMC and VTG
+     */
+    public int getGpsOutputMask() {
+        return gpsOutputMask;
+    }
+
+    /**
+     * @return the GPS update rate in Hz
+     */
+    public int getGpsUpdateRate() {
+        return gpsUpdateRate;
+    }
+
+    /**
+     * @return the satellite systems the GPS module should search, or an empty set to leave the module's setting
+     */
+    public Set<GNSSConstellation> getGpsConstellations() {
+        return gpsConstellations;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for the GPS module to acknowledge a command
+     */
+    public long getGpsAckTimeout() {
+        return gpsAckTimeout;
+    }
+
+    /**
+     * @return the time in milliseconds without GPS data before the GPS is considered stalled
+     */
+    public long getGpsStallTimeout() {
+        return gpsStallTimeout;
+    }
 }
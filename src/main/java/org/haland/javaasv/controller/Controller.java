@@ -18,6 +18,8 @@
 
 package org.haland.javaasv.controller;
 
+import org.haland.javaasv.util.MonotonicClock;
+
 public interface Controller {
     /**
      * Function to calculate the next output of a controller
@@ -39,4 +41,13 @@ public interface Controller {
      * @return
      */
     ControllerType getType();
+
+    /**
+     * Sets the clock a controller measures time between outputs with. Controllers which do not depend on time may
+     * ignore it.
+     *
+     * @param clock the {@link MonotonicClock} to use
+     */
+    default void setClock(MonotonicClock clock) {
+    }
 }
@@ -3,6 +3,8 @@ package org.haland.javaasv.controller;
 import org.haland.javaasv.config.unit.HitzConfigUnit;
 import org.haland.javaasv.route.RouteInterface;
 import org.haland.javaasv.util.MathUtil;
+import org.haland.javaasv.util.MonotonicClock;
+import org.haland.javaasv.util.SystemClock;
 
 public class HitzController implements Controller {
 
@@ -14,6 +16,9 @@ public class HitzController implements Controller {
     private boolean usePeriod;
     private double period;
 
+    private MonotonicClock clock = SystemClock.getInstance();
+
+    // Time of the last output, in nanoseconds of clock
     private long lastUpdate;
 
     private double previousError;
@@ -62,7 +67,9 @@ public class HitzController implements Controller {
 
         double deltaT;
         if (!usePeriod) {
-            deltaT = ((double) (System.currentTimeMillis() - lastUpdate)) / 1000;
+            long now = clock.nanoTime();
+            deltaT = Math.max(0, (now - lastUpdate) / 1e9);
+            lastUpdate = now;
         } else {
             deltaT = period;
         }
@@ -76,7 +83,12 @@ public class HitzController implements Controller {
 
     @Override
     public void start() {
-        lastUpdate = System.currentTimeMillis();
+        lastUpdate = clock.nanoTime();
+    }
+
+    @Override
+    public void setClock(MonotonicClock clock) {
+        this.clock = clock;
     }
 
     @Override
@@ -20,6 +20,8 @@ package org.haland.javaasv.controller;
 
 import org.haland.javaasv.config.unit.PIDConfigUnit;
 import org.haland.javaasv.util.MathUtil;
+import org.haland.javaasv.util.MonotonicClock;
+import org.haland.javaasv.util.SystemClock;
 
 /**
  * Implements a basic PID controller.
@@ -35,6 +37,9 @@ public class PIDController implements Controller {
     private double derivativeCoefficient;
     private double period;
 
+    private MonotonicClock clock = SystemClock.getInstance();
+
+    // Time of the last output, in nanoseconds of clock
     private long lastUpdate;
 
     // default minimum and maximum integral
@@ -97,10 +102,15 @@ public class PIDController implements Controller {
 
     @Override
     public void start() {
-        lastUpdate = System.currentTimeMillis();
+        lastUpdate = clock.nanoTime();
         setSetpoint(0);
     }
 
+    @Override
+    public void setClock(MonotonicClock clock) {
+        this.clock = clock;
+    }
+
     @Override
     public ControllerType getType() {
         return ControllerType.PID;
@@ -121,16 +131,20 @@ public class PIDController implements Controller {
 
             positionError = setpoint - processVariable;
 
-            Double deltaT = ((double) (System.currentTimeMillis() - lastUpdate)) / 1000;
+            long now = clock.nanoTime();
+            double deltaT = (now - lastUpdate) / 1e9;
+            lastUpdate = now;
 
-            velocityError = (positionError - previousError) / deltaT;
+            // Two outputs at the same instant give no information about the rate of change
+            if (deltaT > 0) {
+                velocityError = (positionError - previousError) / deltaT;
 
-            if (integralCoefficient != 0) {
-                totalError = MathUtil.clamp(totalError + positionError * deltaT,
-                        minimumIntegral / integralCoefficient, maximumIntegral / integralCoefficient);
+                if (integralCoefficient != 0) {
+                    totalError = MathUtil.clamp(totalError + positionError * deltaT,
+                            minimumIntegral / integralCoefficient, maximumIntegral / integralCoefficient);
+                }
             }
 
-            lastUpdate = System.currentTimeMillis();
             double out = proportionalityCoefficient * positionError + integralCoefficient * totalError
                     + derivativeCoefficient * velocityError;
             return MathUtil.clamp(out, -100, 100);
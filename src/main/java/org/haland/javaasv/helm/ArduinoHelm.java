@@ -22,6 +22,7 @@ import org.haland.javaasv.message.*;
 import org.haland.javaasv.util.SerialArduino;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -35,6 +36,9 @@ public class ArduinoHelm implements HelmInterface {
      */
     public static final String DEFAULT_CLIENT_ID = "arduinoHelmClient";
 
+    // Large enough for any encoded helm command
+    private static final int SERIAL_BUFFER_SIZE = 64;
+
     private MessengerServerInterface server;
     private HelmArduino helmArduino;
     private String clientID;
@@ -44,6 +48,11 @@ public class ArduinoHelm implements HelmInterface {
 
     private boolean isRunning = false;
 
+    // Reusable serial buffer and binary frame sequence number. dispatch is only ever called from this client's
+    // mailbox worker.
+    private final ByteBuffer serialBuffer = ByteBuffer.allocate(SERIAL_BUFFER_SIZE);
+    private int frameSequence = 0;
+
     /**
      * Constructs a new instance with a given {@link MessengerServer}, {@link SerialArduino}, and clientID
      *
@@ -102,18 +111,33 @@ public class ArduinoHelm implements HelmInterface {
      */
     @Override
     public void dispatch(MessageInterface message) {
-        String data = null;
+        if (message.getType() != getClientType()) {
+            Logger.error("Helm message type not matching: " + message.getType());
+            return;
+        }
+
+        // Encode straight into the reusable buffer so no garbage is created per command
+        serialBuffer.clear();
         try {
-            data = message.getMessageContents().getHelmMessage();
-        } catch (MessageTypeException e) {
-            e.printStackTrace();
+            MessageContent content = message.getMessageContents();
+            switch (helmArduino.getProtocol()) {
+                case ASCII:
+                    content.encodeHelmMessage(serialBuffer);
+                    break;
+                case BINARY:
+                    HelmFrame.encode(serialBuffer, HelmFrame.TYPE_SETPOINT, frameSequence++,
+                            content.getHelmThrottleValue(), content.getHelmRudderValue());
+                    break;
+            }
+        } catch (MessageTypeException | NumberFormatException e) {
+            Logger.error(e);
+            return;
         }
-        if (message.getType() == getClientType()) {
-            Logger.trace("Helm command sent: " + data);
-            helmArduino.sendSerialData(data.getBytes(StandardCharsets.US_ASCII));
-        } else {
-            Logger.error("Helm message type not matching: " + data);
+        if (Logger.isTraceEnabled() && helmArduino.getProtocol() == HelmProtocol.ASCII) {
+            Logger.trace("Helm command sent: "
+                    + new String(serialBuffer.array(), 0, serialBuffer.position(), StandardCharsets.US_ASCII));
         }
+        helmArduino.sendSerialData(serialBuffer.array(), serialBuffer.position());
     }
 
     @Override
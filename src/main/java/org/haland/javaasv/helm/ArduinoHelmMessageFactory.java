@@ -37,8 +37,23 @@ public class ArduinoHelmMessageFactory {
      * @return a message representing the new helm instructions
      */
     public MessageInterface createMessage(double throttleSetpoint, double rudderSetpoint) throws MessageTypeException {
-        return new HelmMessage(originID, destinationID, System.currentTimeMillis(),
-                MessageInterface.MessagePriority.NORMAL, throttleSetpoint, rudderSetpoint);
+        return createMessage(throttleSetpoint, rudderSetpoint, MessageInterface.MessagePriority.NORMAL);
+    }
+
+    /**
+     * Creates a new helm message with the given priority. Safety commands such as centering the rudder or cutting the
+     * throttle should use {@link MessageInterface.MessagePriority#CRITICAL} so they are delivered ahead of routine
+     * traffic.
+     *
+     * @param throttleSetpoint the new throttle setpoint to use
+     * @param rudderSetpoint   the new rudder setpoint to use
+     * @param priority         the priority of the message
+     * @return a message representing the new helm instructions
+     */
+    public MessageInterface createMessage(double throttleSetpoint, double rudderSetpoint,
+                                          MessageInterface.MessagePriority priority) throws MessageTypeException {
+        return new HelmMessage(originID, destinationID, System.currentTimeMillis(), priority, throttleSetpoint,
+                rudderSetpoint);
     }
 
     /**
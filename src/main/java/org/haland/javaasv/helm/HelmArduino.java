@@ -12,6 +12,7 @@ import java.io.IOException;
  */
 public class HelmArduino implements SerialDeviceInterface<String> {
     private final SerialDeviceInterface arduino;
+    private final HelmProtocol protocol;
 
     /**
      * The serial arduino is provided to the class and wrapped with the helm class. This method should not be called
@@ -20,7 +21,19 @@ public class HelmArduino implements SerialDeviceInterface<String> {
      * @param arduino a {@link SerialDeviceInterface}.
      */
     public HelmArduino(SerialDeviceInterface<byte[]> arduino) {
+        this(arduino, HelmProtocol.ASCII);
+    }
+
+    /**
+     * The serial arduino is provided to the class and wrapped with the helm class. This method should not be called
+     * directly outside of tests.
+     *
+     * @param arduino  a {@link SerialDeviceInterface}.
+     * @param protocol the {@link HelmProtocol} the Arduino firmware speaks
+     */
+    public HelmArduino(SerialDeviceInterface<byte[]> arduino, HelmProtocol protocol) {
         this.arduino = arduino;
+        this.protocol = protocol;
     }
 
     /**
@@ -45,7 +58,15 @@ public class HelmArduino implements SerialDeviceInterface<String> {
      * @param config The {@link AllConfig} instance to use
      */
     public HelmArduino(AllConfig config) {
-        this(new SerialArduino(config.getSerialConfig().getArduinoPort()));
+        this(new SerialArduino(config.getSerialConfig().getArduinoPort()),
+                config.getSerialConfig().getArduinoProtocol());
+    }
+
+    /**
+     * @return the {@link HelmProtocol} used to send commands to the Arduino
+     */
+    public HelmProtocol getProtocol() {
+        return protocol;
     }
 
     /**
@@ -98,6 +119,11 @@ public class HelmArduino implements SerialDeviceInterface<String> {
         return arduino.sendSerialData(serialData);
     }
 
+    @Override
+    public int sendSerialData(byte[] serialData, int length) {
+        return arduino.sendSerialData(serialData, length);
+    }
+
     @Override
     public String getLastMessage() throws IOException {
         return "";
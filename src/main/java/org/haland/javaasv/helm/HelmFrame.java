@@ -0,0 +1,121 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.helm;
+
+import org.haland.javaasv.util.MathUtil;
+import org.haland.javaasv.util.SerialUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Defines the binary helm frame used by {@link HelmProtocol#BINARY}. Every frame is {@link #FRAME_LENGTH} bytes:
+ * <pre>
+ * offset  size  field
+ * 0       1     sync byte, {@link #SYNC_BYTE}
+ * 1       1     frame type
+ * 2       1     sequence number, wrapping at 256
+ * 3       2     throttle setpoint, signed fixed point, big-endian
+ * 5       2     rudder setpoint, signed fixed point, big-endian
+ * 7       2     CRC-16/CCITT-FALSE of bytes 1 to 6, big-endian
+ * </pre>
+ * Setpoints are stored as <code>round(value * {@link #SETPOINT_SCALE})</code> and saturate at about &plusmn;32.767.
+ */
+public final class HelmFrame {
+    /**
+     * Byte marking the start of every frame
+     */
+    public static final byte SYNC_BYTE = (byte) 0xA5;
+
+    /**
+     * Frame type for new throttle and rudder setpoints sent to the Arduino
+     */
+    public static final byte TYPE_SETPOINT = 0x01;
+
+    /**
+     * Frame type for the actual throttle and rudder state reported by the Arduino
+     */
+    public static final byte TYPE_STATE = 0x02;
+
+    /**
+     * Length of a frame in bytes
+     */
+    public static final int FRAME_LENGTH = 9;
+
+    /**
+     * Number of fixed point steps per unit of setpoint
+     */
+    public static final int SETPOINT_SCALE = 1000;
+
+    // Offsets of each field
+    static final int TYPE_OFFSET = 1;
+    static final int SEQUENCE_OFFSET = 2;
+    static final int THROTTLE_OFFSET = 3;
+    static final int RUDDER_OFFSET = 5;
+    static final int CRC_OFFSET = 7;
+
+    private HelmFrame() {
+        throw new AssertionError("utility class");
+    }
+
+    /**
+     * Writes a frame to a buffer without allocating
+     *
+     * @param buffer   the buffer to write to. It must be backed by an array.
+     * @param type     the frame type
+     * @param sequence the sequence number. Only the low byte is sent.
+     * @param throttle the throttle setpoint
+     * @param rudder   the rudder setpoint
+     * @return the number of bytes written
+     */
+    public static int encode(ByteBuffer buffer, byte type, int sequence, double throttle, double rudder) {
+        int start = buffer.position();
+        buffer.put(SYNC_BYTE);
+        buffer.put(type);
+        buffer.put((byte) sequence);
+        buffer.putShort(toFixedPoint(throttle));
+        buffer.putShort(toFixedPoint(rudder));
+        int crc = SerialUtil.crc16(buffer.array(), buffer.arrayOffset() + start + TYPE_OFFSET,
+                CRC_OFFSET - TYPE_OFFSET);
+        buffer.putShort((short) crc);
+        return FRAME_LENGTH;
+    }
+
+    /**
+     * Converts a setpoint to fixed point, saturating at the limits of a short
+     *
+     * @param value the setpoint
+     * @return the fixed point value
+     */
+    public static short toFixedPoint(double value) {
+        if (Double.isNaN(value)) {
+            return 0;
+        }
+        return (short) MathUtil.clamp(Math.round(value * SETPOINT_SCALE), Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    /**
+     * Converts a fixed point value back to a setpoint
+     *
+     * @param value the fixed point value
+     * @return the setpoint
+     */
+    public static double fromFixedPoint(short value) {
+        return (double) value / SETPOINT_SCALE;
+    }
+}
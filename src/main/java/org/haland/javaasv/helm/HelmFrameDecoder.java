@@ -0,0 +1,165 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.helm;
+
+import org.haland.javaasv.util.SerialUtil;
+
+/**
+ * Streaming decoder for {@link HelmFrame}s. Bytes are fed in one at a time as they arrive. Bytes outside a frame are
+ * skipped, and a frame that fails its checksum is discarded and the decoder resynchronizes on the next sync byte, so
+ * corrupted data never produces a setpoint. The decoder does not allocate after construction and is not thread-safe.
+ */
+public class HelmFrameDecoder {
+    private final byte[] frame = new byte[HelmFrame.FRAME_LENGTH];
+    private int length;
+
+    // Fields of the last valid frame
+    private byte type;
+    private int sequence = -1;
+    private double throttle;
+    private double rudder;
+
+    // Statistics
+    private long frameCount;
+    private long checksumErrorCount;
+    private long skippedByteCount;
+    private long lostFrameCount;
+    private long duplicateFrameCount;
+
+    /**
+     * Feeds one byte to the decoder
+     *
+     * @param b the next byte from the stream
+     * @return true if this byte completed a valid frame, whose fields are then available from the getters
+     */
+    public boolean accept(byte b) {
+        if (length == 0 && b != HelmFrame.SYNC_BYTE) {
+            skippedByteCount++;
+            return false;
+        }
+
+        frame[length++] = b;
+        if (length < HelmFrame.FRAME_LENGTH) {
+            return false;
+        }
+
+        int expectedCrc = ((frame[HelmFrame.CRC_OFFSET] & 0xFF) << 8) | (frame[HelmFrame.CRC_OFFSET + 1] & 0xFF);
+        int actualCrc = SerialUtil.crc16(frame, HelmFrame.TYPE_OFFSET, HelmFrame.CRC_OFFSET - HelmFrame.TYPE_OFFSET);
+        if (expectedCrc != actualCrc) {
+            checksumErrorCount++;
+            resynchronize();
+            return false;
+        }
+
+        int newSequence = frame[HelmFrame.SEQUENCE_OFFSET] & 0xFF;
+        if (newSequence == sequence) {
+            // A repeat of the last frame carries nothing new, and is not a gap of 255 frames
+            duplicateFrameCount++;
+            length = 0;
+            return false;
+        }
+        if (sequence >= 0) {
+            lostFrameCount += (newSequence - sequence - 1) & 0xFF;
+        }
+        sequence = newSequence;
+        type = frame[HelmFrame.TYPE_OFFSET];
+        throttle = HelmFrame.fromFixedPoint(readShort(HelmFrame.THROTTLE_OFFSET));
+        rudder = HelmFrame.fromFixedPoint(readShort(HelmFrame.RUDDER_OFFSET));
+        frameCount++;
+        length = 0;
+        return true;
+    }
+
+    /**
+     * Feeds a range of bytes to the decoder
+     *
+     * @param data   the bytes to decode
+     * @param offset index of the first byte
+     * @param count  number of bytes
+     * @return the number of valid frames completed. Only the fields of the last one are available.
+     */
+    public int accept(byte[] data, int offset, int count) {
+        int frames = 0;
+        for (int i = offset; i < offset + count; i++) {
+            if (accept(data[i])) {
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Drops the sync byte of a corrupted frame and restarts decoding from the next sync byte in it, if any
+     */
+    private void resynchronize() {
+        int next = 1;
+        while (next < length && frame[next] != HelmFrame.SYNC_BYTE) {
+            next++;
+        }
+        System.arraycopy(frame, next, frame, 0, length - next);
+        skippedByteCount += next;
+        length -= next;
+    }
+
+    private short readShort(int offset) {
+        return (short) (((frame[offset] & 0xFF) << 8) | (frame[offset + 1] & 0xFF));
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public double getThrottle() {
+        return throttle;
+    }
+
+    public double getRudder() {
+        return rudder;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getChecksumErrorCount() {
+        return checksumErrorCount;
+    }
+
+    public long getSkippedByteCount() {
+        return skippedByteCount;
+    }
+
+    /**
+     * @return the number of frames missing according to gaps in the sequence numbers
+     */
+    public long getLostFrameCount() {
+        return lostFrameCount;
+    }
+
+    /**
+     * @return the number of valid frames ignored because they repeated the sequence number of the frame before them
+     */
+    public long getDuplicateFrameCount() {
+        return duplicateFrameCount;
+    }
+}
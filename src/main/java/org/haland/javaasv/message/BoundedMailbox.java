@@ -0,0 +1,141 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.tinylog.Logger;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ClientMailbox} holding a bounded number of messages in a {@link PriorityMessageQueue}, handling overflow
+ * according to an {@link OverflowPolicy}. Messages are delivered in the same priority order the server uses, so an
+ * urgent message never waits behind routine traffic that reached the mailbox first.
+ */
+class BoundedMailbox extends ClientMailbox {
+    private final PriorityMessageQueue queue = new PriorityMessageQueue();
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    // The queue allows a single poller, so every access is made under this lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int size;
+
+    /**
+     * Constructs a mailbox for a client
+     *
+     * @param clientID       the ID the client is registered under
+     * @param client         the client to deliver to
+     * @param capacity       the maximum number of undelivered messages, which urgent messages may exceed
+     * @param overflowPolicy what to do with a new message when the mailbox is full
+     */
+    BoundedMailbox(String clientID, MessengerClientInterface client, int capacity, OverflowPolicy overflowPolicy) {
+        super(clientID, client);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Mailbox capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    void offer(MessageInterface message) {
+        lock.lock();
+        try {
+            if (size >= capacity && !makeRoom(message)) {
+                recordDrop(message);
+                return;
+            }
+            queue.offer(message);
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes room for a message in a full mailbox. Must be called with the lock held.
+     *
+     * @param message the new message
+     * @return true if the message should be added, false if it should be dropped
+     */
+    private boolean makeRoom(MessageInterface message) {
+        boolean urgent = PriorityMessageQueue.isUrgent(message);
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                return evictLowest(PriorityMessageQueue.priorityOf(message)) || urgent;
+            case DROP_NEWEST:
+                if (urgent) {
+                    evictLowest(PriorityMessageQueue.URGENT_PRIORITY);
+                }
+                return urgent;
+            case BLOCK:
+                try {
+                    while (size >= capacity) {
+                        notFull.await();
+                    }
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Logger.warn("Interrupted while waiting for mailbox of client " + getClientID());
+                    return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Drops the oldest message of the lowest priority waiting. Must be called with the lock held.
+     *
+     * @param maxPriority the highest priority that may be dropped
+     * @return true if a message was dropped
+     */
+    private boolean evictLowest(MessageInterface.MessagePriority maxPriority) {
+        MessageInterface victim = queue.pollLowest(maxPriority);
+        if (victim == null) {
+            return false;
+        }
+        size--;
+        recordDrop(victim);
+        return true;
+    }
+
+    @Override
+    MessageInterface take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            size--;
+            notFull.signal();
+            return queue.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
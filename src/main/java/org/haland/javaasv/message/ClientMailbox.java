@@ -0,0 +1,122 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.tinylog.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds undelivered messages for a single {@link MessengerClientInterface} and delivers them on a dedicated worker
+ * thread, so a slow client cannot stall the {@link MessengerServer} or any other client
+ */
+abstract class ClientMailbox implements Runnable {
+    private final String clientID;
+    private final MessengerClientInterface client;
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private Thread worker;
+    private volatile boolean running;
+
+    ClientMailbox(String clientID, MessengerClientInterface client) {
+        this.clientID = clientID;
+        this.client = client;
+    }
+
+    /**
+     * Adds a message to the mailbox. This is called by the server thread.
+     *
+     * @param message the message to deliver
+     */
+    abstract void offer(MessageInterface message);
+
+    /**
+     * Removes the next message to deliver, waiting if the mailbox is empty. This is called by the worker thread.
+     *
+     * @return the next message
+     * @throws InterruptedException if the worker is interrupted while waiting
+     */
+    abstract MessageInterface take() throws InterruptedException;
+
+    /**
+     * Starts the delivery worker
+     */
+    synchronized void start() {
+        if (worker == null) {
+            running = true;
+            worker = new Thread(this, "mailbox-" + clientID);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops the delivery worker. Undelivered messages are discarded.
+     */
+    synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    /**
+     * Delivers messages to the client until stopped
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                client.dispatch(take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                Logger.error(e, "Client " + clientID + " failed to handle message");
+            }
+        }
+        Logger.info("Mailbox for client " + clientID + " stopped");
+    }
+
+    /**
+     * Records a message that was discarded without being delivered
+     *
+     * @param message the discarded message
+     */
+    void recordDrop(MessageInterface message) {
+        droppedCount.incrementAndGet();
+        Logger.trace("Mailbox for client " + clientID + " dropped message from module " + message.getOriginID());
+    }
+
+    /**
+     * @return the number of messages discarded without being delivered
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    MessengerClientInterface getClient() {
+        return client;
+    }
+
+    String getClientID() {
+        return clientID;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A {@link ClientMailbox} that only keeps the newest undelivered message from each origin. A new message replaces any
+ * older message from the same origin that has not been delivered yet, so the client always receives the freshest
+ * value, e.g. the latest helm setpoint, and never works through a backlog of stale ones.
+ */
+class ConflatingMailbox extends ClientMailbox {
+    // Key used for messages without an origin
+    private static final String NO_ORIGIN = "";
+
+    /**
+     * Newest undelivered message for each origin
+     */
+    private final Map<String, MessageInterface> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Origins with a pending message, in the order they became pending
+     */
+    private final BlockingQueue<String> readyOrigins = new LinkedBlockingQueue<>();
+
+    /**
+     * Constructs a conflating mailbox for a client
+     *
+     * @param clientID the ID the client is registered under
+     * @param client   the client to deliver to
+     */
+    ConflatingMailbox(String clientID, MessengerClientInterface client) {
+        super(clientID, client);
+    }
+
+    @Override
+    void offer(MessageInterface message) {
+        String origin = (message.getOriginID() == null) ? NO_ORIGIN : message.getOriginID();
+        MessageInterface replaced = pending.put(origin, message);
+        if (replaced == null) {
+            readyOrigins.offer(origin);
+        } else {
+            recordDrop(replaced);
+        }
+    }
+
+    @Override
+    MessageInterface take() throws InterruptedException {
+        while (true) {
+            MessageInterface message = pending.remove(readyOrigins.take());
+            if (message != null) {
+                return message;
+            }
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package org.haland.javaasv.message;
 
-import org.haland.javaasv.util.SerialUtil;
+import java.nio.ByteBuffer;
 
 public class HelmMessage extends SimpleMessage {
     private final MessageInterface.MessageType messageType = MessageInterface.MessageType.HELM;
 
     /**
-     * Constructs a new helm message with the given parameters
+     * Constructs a new helm message with the given parameters. The setpoints are stored as primitives and encoded
+     * without going through a string.
      *
      * @param originID
      * @param destinationID
@@ -18,9 +19,7 @@ public class HelmMessage extends SimpleMessage {
      */
     public HelmMessage(String originID, String destinationID, long creationTime, MessagePriority priority,
                        double throttleSetpoint, double rudderSetpoint) throws MessageTypeException {
-        super(originID, destinationID, creationTime, priority, new MessageContent(null, null,
-                SerialUtil.START_MESSAGE_CHAR.concat(String.valueOf(throttleSetpoint)).concat(",")
-                        .concat(String.valueOf(rudderSetpoint)).concat(SerialUtil.END_MESSAGE_CHAR)));
+        super(originID, destinationID, creationTime, priority, new MessageContent(throttleSetpoint, rudderSetpoint));
     }
 
     public HelmMessage(String originID, String destinationID, long creationTime, MessagePriority priority,
@@ -32,4 +31,15 @@ public class HelmMessage extends SimpleMessage {
     public MessageType getType() {
         return messageType;
     }
+
+    /**
+     * Writes the serial form of this message to a buffer
+     *
+     * @param buffer the buffer to write to
+     * @return the number of bytes written
+     * @throws MessageTypeException if the message contents are not helm data
+     */
+    public int encode(ByteBuffer buffer) throws MessageTypeException {
+        return getMessageContents().encodeHelmMessage(buffer);
+    }
 }
@@ -1,15 +1,32 @@
 package org.haland.javaasv.message;
 
+import org.haland.javaasv.util.SerialUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Class defining message content structure
  */
 public class MessageContent {
+    /**
+     * Maximum number of decimal places written for helm setpoints
+     */
+    public static final int HELM_DECIMAL_PLACES = 4;
+
+    // Longest possible encoded helm message, with room for the slow path of SerialUtil#putFixedPoint
+    private static final int MAX_HELM_MESSAGE_LENGTH = 64;
+
     private final String stringMessage;
     private final Double doubleMessage;
-    private final String helmMessage;
+    private String helmMessage;
     private final MessageInterface.MessageType messageType;
 
+    // Helm setpoints, if this content was constructed from them rather than from a string
+    private final boolean hasHelmSetpoints;
+    private final double helmThrottle;
+    private final double helmRudder;
+
     /**
      * Constructs a message content object. Exactly one parameter should be non-null.
      *
@@ -44,6 +61,26 @@ public class MessageContent {
         this.stringMessage = stringMessage;
         this.doubleMessage = doubleMessage;
         this.helmMessage = helmMessage;
+        this.hasHelmSetpoints = false;
+        this.helmThrottle = Double.NaN;
+        this.helmRudder = Double.NaN;
+    }
+
+    /**
+     * Constructs helm message content holding primitive throttle and rudder setpoints. The setpoints are encoded
+     * directly with {@link #encodeHelmMessage(ByteBuffer)} and never go through a string.
+     *
+     * @param throttleSetpoint the throttle setpoint
+     * @param rudderSetpoint   the rudder setpoint
+     */
+    public MessageContent(double throttleSetpoint, double rudderSetpoint) {
+        this.messageType = MessageInterface.MessageType.HELM;
+        this.stringMessage = null;
+        this.doubleMessage = null;
+        this.helmMessage = null;
+        this.hasHelmSetpoints = true;
+        this.helmThrottle = throttleSetpoint;
+        this.helmRudder = rudderSetpoint;
     }
 
     public String getStringMessage() throws MessageTypeException {
@@ -60,27 +97,63 @@ public class MessageContent {
         return doubleMessage;
     }
 
+    /**
+     * Returns the helm message as a string. For content constructed from setpoints, the string is built on first
+     * call; use {@link #encodeHelmMessage(ByteBuffer)} on hot paths instead.
+     *
+     * @return the helm message
+     * @throws MessageTypeException if this is not helm content
+     */
     public String getHelmMessage() throws MessageTypeException {
         if (helmMessage == null) {
-            throw new MessageTypeException("No helm data in message contents: ");
+            if (!hasHelmSetpoints) {
+                throw new MessageTypeException("No helm data in message contents: ");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(MAX_HELM_MESSAGE_LENGTH);
+            encodeHelmMessage(buffer);
+            helmMessage = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
         }
         return helmMessage;
     }
 
+    /**
+     * Writes the helm message to a buffer as ASCII, in the form <code>&lt;throttle,rudder&gt;</code>. Content
+     * constructed from setpoints is written with at most {@link #HELM_DECIMAL_PLACES} decimal places and without
+     * allocating.
+     *
+     * @param buffer the buffer to write to
+     * @return the number of bytes written
+     * @throws MessageTypeException if this is not helm content
+     */
+    public int encodeHelmMessage(ByteBuffer buffer) throws MessageTypeException {
+        int start = buffer.position();
+        if (hasHelmSetpoints) {
+            buffer.put(SerialUtil.START_MESSAGE_BYTE);
+            SerialUtil.putFixedPoint(buffer, helmThrottle, HELM_DECIMAL_PLACES);
+            buffer.put(SerialUtil.VALUE_SEPARATOR_BYTE);
+            SerialUtil.putFixedPoint(buffer, helmRudder, HELM_DECIMAL_PLACES);
+            buffer.put(SerialUtil.END_MESSAGE_BYTE);
+        } else {
+            String message = getHelmMessage();
+            for (int i = 0; i < message.length(); i++) {
+                buffer.put((byte) message.charAt(i));
+            }
+        }
+        return buffer.position() - start;
+    }
+
     public double getHelmThrottleValue() throws MessageTypeException {
-        if (helmMessage == null) {
-            throw new MessageTypeException("No helm data in message contents: ");
+        if (hasHelmSetpoints) {
+            return helmThrottle;
         }
-        String value = helmMessage.replaceAll("[<>]", "").split(",")[0];
-        return Double.parseDouble(value);
+        return SerialUtil.parseMessageValue(getHelmMessage(), 0);
     }
 
     public double getHelmRudderValue() throws MessageTypeException {
-        if (helmMessage == null) {
-            throw new MessageTypeException("No helm data in message contents: ");
+        if (hasHelmSetpoints) {
+            return helmRudder;
         }
-        String value = helmMessage.replaceAll("[<>]", "").split(",")[1];
-        return Double.parseDouble(value);
+        return SerialUtil.parseMessageValue(getHelmMessage(), 1);
     }
 
     public MessageInterface.MessageType getContentType() {
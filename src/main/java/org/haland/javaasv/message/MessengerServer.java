@@ -20,12 +20,14 @@ package org.haland.javaasv.message;
 
 import org.tinylog.Logger;
 
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Handles message passing for the system. Only one should exist
@@ -37,22 +39,46 @@ public class MessengerServer implements MessengerServerInterface {
     private static ScheduledExecutorService executor = null;
 
     /**
-     * Stack representing messages to handle
+     * Lock-free queue of messages to handle, with one FIFO lane per message priority. Any number of producers may
+     * dispatch concurrently while the server drains it, and none of them will block each other.
      */
-    private Stack<MessageInterface> messageStack;
+    private final PriorityMessageQueue messageQueue;
 
     /**
-     * Map representing registered client modules
+     * Default number of undelivered messages each client mailbox can hold
      */
-    private Map<String, MessengerClientInterface> clients;
+    public static final int DEFAULT_MAILBOX_CAPACITY = 64;
+
+    /**
+     * Default handling of new messages when a client mailbox is full
+     */
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * Map representing registered client modules, each with its own mailbox and delivery worker
+     */
+    private final Map<String, ClientMailbox> clients;
+
+    // Mailbox settings for clients registered without their own
+    private volatile int mailboxCapacity = DEFAULT_MAILBOX_CAPACITY;
+    private volatile OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+
+    // Message types whose clients get a conflating mailbox by default
+    private volatile Set<MessageInterface.MessageType> conflatedTypes =
+            EnumSet.noneOf(MessageInterface.MessageType.class);
+
+    // Drain thread used in event delivery mode, and whether it is currently parked waiting for messages
+    private volatile Thread drainThread;
+    private volatile boolean drainThreadParked;
+    private volatile boolean eventDeliveryRunning;
 
     /**
      * Creates a new instance of the server
 	 * This method is private to ensure only one may be created
      */
     private MessengerServer(ScheduledExecutorService executor) {
-        clients = new HashMap<String, MessengerClientInterface>();
-        messageStack = new Stack<MessageInterface>();
+        clients = new ConcurrentHashMap<String, ClientMailbox>();
+        messageQueue = new PriorityMessageQueue();
         this.executor = executor;
         Logger.info("Server constructed");
     }
@@ -73,13 +99,47 @@ public class MessengerServer implements MessengerServerInterface {
     }
 
     public static void killInstance() {
+        if (messengerServerInstance != null) {
+            messengerServerInstance.eventDeliveryRunning = false;
+            messengerServerInstance.stopMailboxes();
+        }
         messengerServerInstance = null;
-        executor.shutdownNow();
-        executor = null;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Sets the mailbox capacity and overflow policy for clients registered after this call without their own
+     *
+     * @param capacity       the number of undelivered messages each mailbox can hold
+     * @param overflowPolicy what to do with a new message when a mailbox is full
+     */
+    public void setMailboxDefaults(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Mailbox capacity must be positive");
+        }
+        this.mailboxCapacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        Logger.info("Mailbox defaults set to capacity " + capacity + " with overflow policy " + overflowPolicy);
+    }
+
+    /**
+     * Sets the message types whose clients receive a conflating mailbox when registered after this call without their
+     * own mailbox settings. See {@link #registerConflatingClientModule(String, MessengerClientInterface)}.
+     *
+     * @param types the message types to conflate
+     */
+    public void setConflatedTypes(Set<MessageInterface.MessageType> types) {
+        Set<MessageInterface.MessageType> conflated = EnumSet.noneOf(MessageInterface.MessageType.class);
+        conflated.addAll(types);
+        this.conflatedTypes = conflated;
+        Logger.info("Conflating mailboxes for message types " + conflated);
     }
 
     /**
-     * Adds a module to the registry with a specific client name
+     * Adds a module to the registry with a specific client name, using the default mailbox settings
      *
      * @param clientID     the name of the module to register
      * @param clientModule the module to register
@@ -88,13 +148,51 @@ public class MessengerServer implements MessengerServerInterface {
     @Override
     public void registerClientModule(String clientID,
                                      MessengerClientInterface clientModule) throws DuplicateKeyException {
-        Logger.info("Attempting to attach client " + clientModule.getClass() + " with name " + clientID);
-        if (clients.putIfAbsent(clientID, clientModule) != null) {
+        if (conflatedTypes.contains(clientModule.getClientType())) {
+            registerConflatingClientModule(clientID, clientModule);
+        } else {
+            registerClientModule(clientID, clientModule, mailboxCapacity, overflowPolicy);
+        }
+    }
+
+    /**
+     * Adds a module to the registry with a conflating mailbox. A new message for the module replaces any undelivered
+     * message from the same origin, so the module only ever receives the latest value from each sender.
+     *
+     * @param clientID     the name of the module to register
+     * @param clientModule the module to register
+     * @throws DuplicateKeyException if a module with a duplicate ID is registered
+     */
+    public void registerConflatingClientModule(String clientID,
+                                               MessengerClientInterface clientModule) throws DuplicateKeyException {
+        registerMailbox(new ConflatingMailbox(clientID, clientModule));
+    }
+
+    /**
+     * Adds a module to the registry with a specific client name and mailbox settings. Messages for the module are
+     * delivered on its own worker thread.
+     *
+     * @param clientID       the name of the module to register
+     * @param clientModule   the module to register
+     * @param capacity       the number of undelivered messages the module's mailbox can hold
+     * @param overflowPolicy what to do with a new message when the mailbox is full
+     * @throws DuplicateKeyException if a module with a duplicate ID is registered
+     */
+    public void registerClientModule(String clientID, MessengerClientInterface clientModule, int capacity,
+                                     OverflowPolicy overflowPolicy) throws DuplicateKeyException {
+        registerMailbox(new BoundedMailbox(clientID, clientModule, capacity, overflowPolicy));
+    }
+
+    private void registerMailbox(ClientMailbox mailbox) throws DuplicateKeyException {
+        Logger.info("Attempting to attach client " + mailbox.getClient().getClass() + " with name "
+                + mailbox.getClientID());
+        if (clients.putIfAbsent(mailbox.getClientID(), mailbox) != null) {
             DuplicateKeyException e = new DuplicateKeyException("Duplicate client registered to server: "
-                    + clientModule.getClientID());
+                    + mailbox.getClient().getClientID());
             Logger.error(e);
             throw e;
         }
+        mailbox.start();
     }
 
     /**
@@ -109,31 +207,40 @@ public class MessengerServer implements MessengerServerInterface {
     }
 
     /**
-     * Dispatches a message to the stack
+     * Dispatches a message to the queue. This never blocks, so it is safe to call from any number of threads.
      *
      * @param message the message being dispatched
      */
     @Override
-    public synchronized void dispatch(MessageInterface message) {
+    public void dispatch(MessageInterface message) {
         Logger.trace("Message from module " + message.getOriginID() + " and to module " + message.getDestinationID()
                 + " added to queue");
-        messageStack.push(message);
+        messageQueue.offer(message);
+
+        // Wake the drain thread if it is waiting for work
+        if (drainThreadParked) {
+            LockSupport.unpark(drainThread);
+        }
     }
 
     /**
-     * Calls the {@link MessengerClientInterface#dispatch(MessageInterface)} method of the destination client for each
-     * message in the stack
+     * Hands each message in the queue to the mailbox of its destination client, whose worker then calls
+     * {@link MessengerClientInterface#dispatch(MessageInterface)}. Higher priority messages are handed over first, and
+     * messages of equal priority are handed over oldest first.
      */
     @Override
-    public synchronized void run() {
-        while (!messageStack.empty()) {
-            MessageInterface message = messageStack.pop();
-            MessengerClientInterface client = clients.get(message.getDestinationID());
+    public void run() {
+        MessageInterface message;
+        while ((message = messageQueue.poll()) != null) {
+            ClientMailbox mailbox = clients.get(message.getDestinationID());
 
-            if (message.getType() == client.getClientType()) {
+            if (mailbox == null) {
+                Logger.warn("Message from module " + message.getOriginID() + " addressed to unknown module "
+                        + message.getDestinationID() + "; message was dropped");
+            } else if (message.getType() == mailbox.getClient().getClientType()) {
                 Logger.trace("Message from module " + message.getOriginID() + " dispatched to "
                         + message.getDestinationID());
-                client.dispatch(message);
+                mailbox.offer(message);
             } else {
                 Logger.trace("Message from module " + message.getOriginID() + " wrong message type for "
                         + message.getDestinationID() + "; message was dropped");
@@ -151,8 +258,68 @@ public class MessengerServer implements MessengerServerInterface {
         Logger.info("Started server at period " + period);
     }
 
+    /**
+     * Starts the server in the specified delivery mode
+     *
+     * @param mode   the {@link DeliveryMode} to use
+     * @param period execution period in milliseconds. Only used for {@link DeliveryMode#POLLED}.
+     */
+    public void startServer(DeliveryMode mode, long period) {
+        switch (mode) {
+            case POLLED:
+                startServer(period);
+                break;
+            case EVENT:
+                eventDeliveryRunning = true;
+                executor.execute(this::drainOnDispatch);
+                Logger.info("Started server in event delivery mode");
+                break;
+        }
+    }
+
     public void stopServer() {
+        eventDeliveryRunning = false;
+        LockSupport.unpark(drainThread);
         executor.shutdown();
+        stopMailboxes();
         Logger.info("Stopping server");
     }
+
+    /**
+     * Returns the number of messages a client's mailbox has discarded, either because it was full or because a newer
+     * message from the same origin replaced them
+     *
+     * @param clientID the ID of the client
+     * @return the number of dropped messages, or 0 if no such client is registered
+     */
+    public long getDroppedMessageCount(String clientID) {
+        ClientMailbox mailbox = clients.get(clientID);
+        return (mailbox == null) ? 0 : mailbox.getDroppedCount();
+    }
+
+    private void stopMailboxes() {
+        for (ClientMailbox mailbox : clients.values()) {
+            mailbox.stop();
+        }
+    }
+
+    /**
+     * Drains the queue whenever a message is dispatched. The thread parks while the queue is empty, and
+     * {@link #dispatch(MessageInterface)} unparks it.
+     */
+    private void drainOnDispatch() {
+        drainThread = Thread.currentThread();
+        while (eventDeliveryRunning && !drainThread.isInterrupted()) {
+            run();
+
+            // Announce that we are about to park before the final empty check, so a message dispatched in between
+            // is guaranteed to unpark us
+            drainThreadParked = true;
+            if (messageQueue.isEmpty() && eventDeliveryRunning) {
+                LockSupport.park(this);
+            }
+            drainThreadParked = false;
+        }
+        Logger.info("Event delivery stopped");
+    }
 }
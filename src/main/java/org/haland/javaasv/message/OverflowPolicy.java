@@ -0,0 +1,42 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+/**
+ * Defines what a client mailbox does with a new message when it is full. Under the dropping policies, messages at or
+ * above {@link PriorityMessageQueue#URGENT_PRIORITY} are never dropped: a new urgent message evicts the oldest
+ * non-urgent message, or is accepted over capacity if every waiting message is urgent.
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the oldest undelivered message of the lowest priority waiting to make room, or the new message if
+     * everything waiting has a higher priority than it
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discard the new message, unless it is urgent
+     */
+    DROP_NEWEST,
+
+    /**
+     * Block the server until the client has made room. A slow client will stall every other client.
+     */
+    BLOCK
+}
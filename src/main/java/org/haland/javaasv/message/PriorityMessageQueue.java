@@ -0,0 +1,182 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A multi-lane message queue ordered by {@link MessageInterface.MessagePriority}. Each priority has its own lock-free
+ * FIFO lane, so any number of producers may offer messages concurrently. Only one thread may poll at a time.
+ * <p>
+ * Lanes at or above {@link #URGENT_PRIORITY} always drain first. The remaining lanes drain highest first, but a lane
+ * that has been passed over {@link #getStarvationLimit()} times in a row gets the next delivery, so low priority
+ * traffic keeps moving while the bus is flooded.
+ */
+public class PriorityMessageQueue {
+    /**
+     * The lowest priority that always drains before everything else
+     */
+    public static final MessageInterface.MessagePriority URGENT_PRIORITY = MessageInterface.MessagePriority.HIGH;
+
+    /**
+     * The default number of times a non-urgent lane may be passed over before it is served
+     */
+    public static final int DEFAULT_STARVATION_LIMIT = 8;
+
+    /**
+     * Priority assigned to messages that do not specify one
+     */
+    private static final MessageInterface.MessagePriority DEFAULT_PRIORITY = MessageInterface.MessagePriority.NORMAL;
+
+    private final Queue<MessageInterface>[] lanes;
+    private final int[] passedOver;
+    private final int starvationLimit;
+
+    /**
+     * Constructs an empty queue with the default starvation limit
+     */
+    public PriorityMessageQueue() {
+        this(DEFAULT_STARVATION_LIMIT);
+    }
+
+    /**
+     * Constructs an empty queue
+     *
+     * @param starvationLimit number of consecutive times a non-urgent lane may be passed over before it is served
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PriorityMessageQueue(int starvationLimit) {
+        if (starvationLimit < 1) {
+            throw new IllegalArgumentException("Starvation limit must be positive");
+        }
+        int laneCount = MessageInterface.MessagePriority.values().length;
+        this.lanes = new Queue[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ConcurrentLinkedQueue<MessageInterface>();
+        }
+        this.passedOver = new int[laneCount];
+        this.starvationLimit = starvationLimit;
+    }
+
+    /**
+     * Adds a message to the lane for its priority. Messages without a priority are treated as
+     * {@link MessageInterface.MessagePriority#NORMAL}.
+     *
+     * @param message the message to add
+     */
+    public void offer(MessageInterface message) {
+        lanes[laneOf(message)].offer(message);
+    }
+
+    /**
+     * Removes the next message to deliver
+     *
+     * @return the next message, or null if every lane is empty
+     */
+    public MessageInterface poll() {
+        MessageInterface message;
+        int urgent = URGENT_PRIORITY.ordinal();
+
+        // Urgent lanes always go first
+        for (int lane = lanes.length - 1; lane >= urgent; lane--) {
+            if ((message = lanes[lane].poll()) != null) {
+                return message;
+            }
+        }
+
+        // Serve any starved lane, lowest first
+        for (int lane = 0; lane < urgent; lane++) {
+            if (passedOver[lane] >= starvationLimit && (message = lanes[lane].poll()) != null) {
+                passedOver[lane] = 0;
+                return message;
+            }
+        }
+
+        // Otherwise take the highest non-urgent message and age every lane below it that is waiting
+        for (int lane = urgent - 1; lane >= 0; lane--) {
+            if ((message = lanes[lane].poll()) != null) {
+                passedOver[lane] = 0;
+                for (int lower = lane - 1; lower >= 0; lower--) {
+                    if (!lanes[lower].isEmpty()) {
+                        passedOver[lower]++;
+                    }
+                }
+                return message;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the oldest message from the lowest priority lane that has one, so that a full queue can make room.
+     * Messages at or above {@link #URGENT_PRIORITY} are never removed.
+     *
+     * @param maxPriority the highest priority that may be removed
+     * @return the removed message, or null if there is no message that may be removed
+     */
+    MessageInterface pollLowest(MessageInterface.MessagePriority maxPriority) {
+        int highest = Math.min(maxPriority.ordinal(), URGENT_PRIORITY.ordinal() - 1);
+        MessageInterface message;
+        for (int lane = 0; lane <= highest; lane++) {
+            if ((message = lanes[lane].poll()) != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if there are no messages in any lane
+     */
+    public boolean isEmpty() {
+        for (Queue<MessageInterface> lane : lanes) {
+            if (!lane.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getStarvationLimit() {
+        return starvationLimit;
+    }
+
+    /**
+     * @param message the message
+     * @return the priority the message is queued at
+     */
+    static MessageInterface.MessagePriority priorityOf(MessageInterface message) {
+        MessageInterface.MessagePriority priority = message.getPriority();
+        return (priority == null) ? DEFAULT_PRIORITY : priority;
+    }
+
+    /**
+     * @param message the message
+     * @return true if the message is at or above {@link #URGENT_PRIORITY}
+     */
+    static boolean isUrgent(MessageInterface message) {
+        return priorityOf(message).compareTo(URGENT_PRIORITY) >= 0;
+    }
+
+    private static int laneOf(MessageInterface message) {
+        return priorityOf(message).ordinal();
+    }
+}
@@ -19,18 +19,30 @@
 package org.haland.javaasv.pilot;
 
 import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
+import org.haland.javaasv.config.SerialConfig;
+import org.haland.javaasv.util.ByteRingBuffer;
 import org.haland.javaasv.util.SerialDeviceInterface;
 import org.tinylog.Logger;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * An implementation of {@link SerialDeviceInterface} that communicates with the Raspberry Pi GPS hat to provide GPS
- * data
+ * data. {@link #configure()} sets the module's baud rate, update rate, satellite systems and NMEA output, checking
+ * that the module acknowledges each command. Command echo is turned on first, and a reply only counts once the echo of
+ * its command has come back, so a late reply to a command that timed out is never taken as the reply to the next one.
+ * <p>
+ * Incoming data is handled on jSerialComm's event thread as soon as it arrives. A {@link GPSLineRouter} copies NMEA
+ * sentences into a lock-free {@link ByteRingBuffer} for a single consumer to take with {@link #read}, and every other
+ * line is treated as a reply to a command. Nothing that reads from the hat blocks on the serial port: if the
+ * consumer falls behind, bytes are dropped and counted rather than holding up the port.
  */
 public class GPSHat implements SerialDeviceInterface<String> {
     /**
@@ -43,6 +55,43 @@ public class GPSHat implements SerialDeviceInterface<String> {
     private static final int DEFAULT_STOP_BITS = 1;
     private static final int DEFAULT_PARITY = 0;
 
+    private static final int DEFAULT_OUTPUT_MASK = 32;
+    private static final int DEFAULT_UPDATE_RATE = 1;
+    private static final long DEFAULT_ACK_TIMEOUT = 1000;
+
+    /**
+     * Highest update rate the GPS module supports, in Hz
+     */
+    public static final int MAX_UPDATE_RATE = 10;
+
+    // About 1.4 s of data at 115200 baud
+    private static final int RING_CAPACITY = 16384;
+    private static final int MAX_REPLY_LENGTH = 128;
+
+    // Typical length of an NMEA sentence, and bits sent per byte with one start and one stop bit
+    private static final int NMEA_SENTENCE_BYTES = 80;
+    private static final int BITS_PER_BYTE = 10;
+
+    /**
+     * Serial string to check that the module is responding
+     */
+    public static final String ATTENTION_MESSAGE = "AT\n";
+
+    /**
+     * Serial string to have the module echo each command before replying to it
+     */
+    public static final String ECHO_ON_MESSAGE = "ATE1\n";
+
+    /**
+     * Reply to a command that succeeded
+     */
+    public static final String ACK_OK = "OK";
+
+    /**
+     * Reply to a command that failed
+     */
+    public static final String ACK_ERROR = "ERROR";
+
     /**
      * Serial string to start the GPS module
      */
@@ -54,37 +103,83 @@ public class GPSHat implements SerialDeviceInterface<String> {
     public static final String STOP_GPS_MESSAGE = "AT+CGNSPWR=0\n";
 
     /**
-     * Serial string to start GPS data output in RMC NMEA format
-     */
-    public static final String START_GPS_DATA_MESSAGE = "AT+CGPSOUT=32\n";
-
-    /**
-     * Serial string to start GPS data output
+     * Serial string to stop GPS data output
      */
     public static final String STOP_GPS_DATA_MESSAGE = "AT+CGPSOUT=0\n";
 
     private SerialPort serialPort;
     private String portName;
-    private InputStream in;
-    private InputStreamReader inReader;
-    private BufferedReader bufferedReader;
+
+    private final ByteRingBuffer ring = new ByteRingBuffer(RING_CAPACITY);
+    private final GPSLineRouter router = new GPSLineRouter(ring, MAX_REPLY_LENGTH, this::replyReceived);
+
+    // The thread waiting in read(), to be woken by the event thread
+    private volatile Thread reader;
+
+    // The command waiting for an acknowledgement, replaced for each command so a late reply cannot reach the next one
+    private volatile PendingCommand pendingCommand;
+
+    // The last line that was not an NMEA sentence
+    private volatile String lastMessage;
+    private volatile boolean messageAvailable;
+
+    // Ingest statistics, written only by the event thread
+    private volatile long bytesReceived;
+    private volatile long lastDataNanos = System.nanoTime();
+
+    private final int baudRate;
+    private final int outputMask;
+    private final int updateRate;
+    private final Set<GNSSConstellation> constellations;
+    private final long ackTimeout;
 
     /**
      * Instantiates and configures a GPS hat
-     * @param portName Port name for the GPS
+     * @param portName       Port name for the GPS
+     * @param baudRate       Baud rate to run the module's serial port at
+     * @param outputMask     Mask of NMEA sentences to output, such as 98 for GGA, RMC and VTG
+     * @param updateRate     Update rate in Hz, between 1 and {@link #MAX_UPDATE_RATE}
+     * @param constellations Satellite systems to search, or an empty set to leave the module's setting
+     * @param ackTimeout     Time in milliseconds to wait for the module to acknowledge a command
      */
-    public GPSHat(String portName) {
+    public GPSHat(String portName, int baudRate, int outputMask, int updateRate, Set<GNSSConstellation> constellations,
+                  long ackTimeout) {
         Logger.info("Attempting to configure GPS on port " + portName);
+        if (updateRate < 1 || updateRate > MAX_UPDATE_RATE) {
+            throw new IllegalArgumentException("GPS update rate must be between 1 and " + MAX_UPDATE_RATE + " Hz");
+        }
         this.portName = portName;
+        this.baudRate = baudRate;
+        this.outputMask = outputMask;
+        this.updateRate = updateRate;
+        this.constellations = constellations;
+        this.ackTimeout = ackTimeout;
+
+        // The module starts at the default rate, and configure() moves it to the configured one
         this.serialPort = SerialPort.getCommPort(this.portName);
         this.serialPort.setComPortParameters(DEFAULT_BAUD_RATE, DEFAULT_DATA_BITS, DEFAULT_STOP_BITS, DEFAULT_PARITY);
-        this.serialPort.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, 0, 0);
-        this.in = serialPort.getInputStream();
-        this.inReader = new InputStreamReader(in, StandardCharsets.US_ASCII);
-        this.bufferedReader = new BufferedReader(inReader);
+        this.serialPort.setComPortTimeouts(SerialPort.TIMEOUT_NONBLOCKING, 0, 0);
         Logger.info("GPS configured");
     }
 
+    /**
+     * Instantiates and configures a GPS hat with the RMC output at 1 Hz
+     * @param portName Port name for the GPS
+     */
+    public GPSHat(String portName) {
+        this(portName, DEFAULT_BAUD_RATE, DEFAULT_OUTPUT_MASK, DEFAULT_UPDATE_RATE,
+                EnumSet.noneOf(GNSSConstellation.class), DEFAULT_ACK_TIMEOUT);
+    }
+
+    /**
+     * Instantiates and configures a GPS hat from a {@link SerialConfig}
+     * @param config the {@link SerialConfig} to use
+     */
+    public GPSHat(SerialConfig config) {
+        this(config.getGpsPort(), config.getGpsBaudRate(), config.getGpsOutputMask(), config.getGpsUpdateRate(),
+                config.getGpsConstellations(), config.getGpsAckTimeout());
+    }
+
     public GPSHat() {
         this(DEFAULT_PORT);
     }
@@ -101,6 +196,7 @@ public class GPSHat implements SerialDeviceInterface<String> {
         boolean opened = serialPort.openPort();
 
         if (opened) {
+            serialPort.addDataListener(new IngestListener());
             Logger.info("Port " + portName + " opened successfully");
         } else {
             Logger.error("Failed to open port " + portName);
@@ -109,18 +205,98 @@ public class GPSHat implements SerialDeviceInterface<String> {
         return opened;
     }
 
+    /**
+     * Powers on the GPS module and configures it
+     *
+     * @return <code>true</code> if the module acknowledged every command, <code>false</code> otherwise
+     */
+    public boolean configure() {
+        boolean configured = configureBaudRate() && sendCommand(ECHO_ON_MESSAGE, false) && setGPSPower(true)
+                && configureUpdateRate() && configureConstellations() && setGPSDataReporting(true);
+
+        if (configured) {
+            Logger.info("GPS reporting at " + updateRate + " Hz with output mask " + outputMask);
+        } else {
+            Logger.error("Failed to configure GPS");
+        }
+
+        long bitsPerSecond = (long) Integer.bitCount(outputMask) * NMEA_SENTENCE_BYTES * BITS_PER_BYTE * updateRate;
+        if (bitsPerSecond > baudRate) {
+            Logger.warn("GPS output of about " + bitsPerSecond + " bit/s will not fit in " + baudRate + " baud");
+        }
+        return configured;
+    }
+
+    /**
+     * Moves the module to the configured baud rate. The module may still be at the default rate, or already at the
+     * configured rate from an earlier run, so the configured rate is tried first. Echo may still be off, so replies are
+     * accepted without it.
+     */
+    private boolean configureBaudRate() {
+        if (baudRate == DEFAULT_BAUD_RATE) {
+            return true;
+        }
+        serialPort.setBaudRate(baudRate);
+        if (sendCommand(ATTENTION_MESSAGE, false)) {
+            return true;
+        }
+
+        Logger.info("Changing GPS baud rate from " + DEFAULT_BAUD_RATE + " to " + baudRate);
+        serialPort.setBaudRate(DEFAULT_BAUD_RATE);
+        if (!sendCommand("AT+IPR=" + baudRate + "\n", false)) {
+            return false;
+        }
+        serialPort.setBaudRate(baudRate);
+        return sendCommand(ATTENTION_MESSAGE, false);
+    }
+
+    private boolean configureUpdateRate() {
+        return sendCommand(pmtkCommand("PMTK220," + (1000 / updateRate)));
+    }
+
+    private boolean configureConstellations() {
+        if (constellations.isEmpty()) {
+            return true;
+        }
+
+        // PMTK353 takes GPS, GLONASS, Galileo, Galileo full mode and BeiDou flags
+        StringBuilder command = new StringBuilder("PMTK353");
+        for (GNSSConstellation constellation : GNSSConstellation.values()) {
+            command.append(constellations.contains(constellation) ? ",1" : ",0");
+            if (constellation == GNSSConstellation.GALILEO) {
+                command.append(",0");
+            }
+        }
+        return sendCommand(pmtkCommand(command.toString()));
+    }
+
+    /**
+     * Wraps a PMTK sentence in the AT command that passes it to the GPS engine, adding the NMEA checksum
+     *
+     * @param sentence the sentence between the <code>$</code> and the <code>*</code>
+     * @return the AT command
+     */
+    static String pmtkCommand(String sentence) {
+        int checksum = 0;
+        for (int i = 0; i < sentence.length(); i++) {
+            checksum ^= sentence.charAt(i);
+        }
+        return String.format("AT+CGNSCMD=0,\"$%s*%02X\"\n", sentence, checksum);
+    }
+
     /**
      * Turns the GPS module on or off
      *
      * @param powerOn true for power on, false for power off
+     * @return <code>true</code> if the module acknowledged the command
      */
-    public void setGPSPower(boolean powerOn) {
+    public boolean setGPSPower(boolean powerOn) {
         if (powerOn) {
             Logger.info("Powering on GPS with serial message " + START_GPS_MESSAGE);
-            sendSerialData(START_GPS_MESSAGE.getBytes());
+            return sendCommand(START_GPS_MESSAGE);
         } else {
             Logger.info("Powering off GPS with serial message " + STOP_GPS_MESSAGE);
-            sendSerialData(STOP_GPS_MESSAGE.getBytes());
+            return sendCommand(STOP_GPS_MESSAGE);
         }
     }
 
@@ -128,14 +304,123 @@ public class GPSHat implements SerialDeviceInterface<String> {
      * Starts and stops GPS reporting
      *
      * @param reportingOn true to start reporting, false to stop reporting
+     * @return <code>true</code> if the module acknowledged the command
      */
-    public void setGPSDataReporting(boolean reportingOn) {
+    public boolean setGPSDataReporting(boolean reportingOn) {
         if (reportingOn) {
-            Logger.info("Starting GPS data reporting with serial message " + START_GPS_DATA_MESSAGE);
-            sendSerialData(START_GPS_DATA_MESSAGE.getBytes());
+            String message = "AT+CGPSOUT=" + outputMask + "\n";
+            Logger.info("Starting GPS data reporting with serial message " + message);
+            return sendCommand(message);
         } else {
             Logger.info("Stopping GPS data reporting with serial message " + STOP_GPS_DATA_MESSAGE);
-            sendSerialData(STOP_GPS_DATA_MESSAGE.getBytes());
+            return sendCommand(STOP_GPS_DATA_MESSAGE);
+        }
+    }
+
+    /**
+     * Sends an AT command and waits for the module to acknowledge it. Only one command is outstanding at a time. Echo
+     * must be on, as it is after {@link #configure()}: a reply only counts once the command's echo has been received.
+     *
+     * @param command the command, including the line ending
+     * @return <code>true</code> if the module replied {@link #ACK_OK}, <code>false</code> if it replied with an error
+     * or did not reply in time
+     */
+    public boolean sendCommand(String command) {
+        return sendCommand(command, true);
+    }
+
+    private synchronized boolean sendCommand(String command, boolean requireEcho) {
+        PendingCommand pending = new PendingCommand(command, requireEcho, Thread.currentThread());
+        pendingCommand = pending;
+        try {
+            byte[] data = command.getBytes(StandardCharsets.US_ASCII);
+            if (sendSerialData(data) != data.length) {
+                Logger.error("Failed to send GPS command " + command.strip());
+                return false;
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeout);
+            String reply;
+            long remaining;
+            while ((reply = pending.getReply()) == null && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.currentThread().isInterrupted()) {
+                    Logger.warn("Interrupted waiting for GPS to acknowledge " + command.strip());
+                    return false;
+                }
+            }
+
+            if (reply == null) {
+                Logger.error("GPS did not acknowledge " + command.strip() + " within " + ackTimeout + " ms");
+                return false;
+            } else if (!ACK_OK.equals(reply)) {
+                Logger.error("GPS rejected " + command.strip() + ": " + reply);
+                return false;
+            }
+            return true;
+        } finally {
+            pendingCommand = null;
+        }
+    }
+
+    /**
+     * A command waiting for its reply. Replies are matched on the event thread.
+     */
+    static final class PendingCommand {
+        private final String echo;
+        private final Thread sender;
+        private volatile boolean echoed;
+        private volatile String reply;
+
+        /**
+         * @param command     the command, including the line ending
+         * @param requireEcho <code>true</code> to ignore replies until the command's echo is received
+         * @param sender      the thread to wake when the reply arrives, or null
+         */
+        PendingCommand(String command, boolean requireEcho, Thread sender) {
+            this.echo = command.strip();
+            this.echoed = !requireEcho;
+            this.sender = sender;
+        }
+
+        /**
+         * Offers a line received from the module
+         *
+         * @param line the line, without its line ending
+         * @return <code>true</code> if the line is the reply to this command
+         */
+        boolean accept(String line) {
+            if (reply != null) {
+                return false;
+            }
+            if (!echoed) {
+                if (line.equals(echo)) {
+                    echoed = true;
+                } else if (isReply(line)) {
+                    Logger.debug("Ignoring GPS reply " + line + " received before the echo of " + echo);
+                }
+                return false;
+            }
+            if (!isReply(line)) {
+                return false;
+            }
+
+            reply = line;
+            if (sender != null) {
+                LockSupport.unpark(sender);
+            }
+            return true;
+        }
+
+        private static boolean isReply(String line) {
+            return ACK_OK.equals(line) || line.contains(ACK_ERROR);
+        }
+
+        /**
+         * @return the reply, or null if none has been received yet
+         */
+        String getReply() {
+            return reply;
         }
     }
 
@@ -148,6 +433,7 @@ public class GPSHat implements SerialDeviceInterface<String> {
     public synchronized boolean closePort() {
         Logger.info("Attempting to close serial port " + portName);
 
+        serialPort.removeDataListener();
         boolean closed = serialPort.closePort();
 
         if (closed) {
@@ -167,31 +453,145 @@ public class GPSHat implements SerialDeviceInterface<String> {
      */
     @Override
     public int sendSerialData(byte[] serialData) {
-        return serialPort.writeBytes(serialData, serialData.length);
+        return sendSerialData(serialData, serialData.length);
+    }
+
+    @Override
+    public int sendSerialData(byte[] serialData, int length) {
+        return serialPort.writeBytes(serialData, length);
     }
 
-    public InputStream getInputStream() {
-        return in;
+    /**
+     * Takes NMEA data received from the GPS, waiting for some to arrive if there is none. Only one thread may read.
+     *
+     * @param destination the array to copy the data into
+     * @param offset      index to copy the first byte to
+     * @param length      the most bytes to take
+     * @param timeout     the longest time to wait for data
+     * @param unit        the unit of <code>timeout</code>
+     * @return the number of bytes taken, or 0 if none arrived before the timeout
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public int read(byte[] destination, int offset, int length, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            int count = ring.read(destination, offset, length);
+            if (count > 0) {
+                return count;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return 0;
+            }
+
+            // Registering before checking again means data arriving in between still wakes this thread
+            reader = Thread.currentThread();
+            if (ring.size() == 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            reader = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
     }
 
+    /**
+     * Provides the last line received from the module that was not an NMEA sentence, such as a command reply. This
+     * does not block.
+     *
+     * @return the last reply
+     * @throws IOException if the module has not replied to anything yet
+     */
     @Override
-    public synchronized String getLastMessage() {
-        try {
-            return bufferedReader.readLine();
-        } catch (IOException e) {
-            e.printStackTrace();
-            Logger.error(e);
-            return "OOPS";
+    public String getLastMessage() throws IOException {
+        String message = lastMessage;
+        if (message == null) {
+            throw new IOException("No message received from the GPS yet");
         }
+        messageAvailable = false;
+        return message;
     }
 
     @Override
-    public synchronized boolean isMessageAvailable() {
-        try {
-            return bufferedReader.ready();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+    public boolean isMessageAvailable() {
+        return messageAvailable;
+    }
+
+    /**
+     * @return the total number of bytes received from the GPS
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return the number of NMEA bytes dropped because the reader had fallen behind
+     */
+    public long getBytesDropped() {
+        return router.getBytesDropped();
+    }
+
+    /**
+     * @return the most NMEA bytes that have been waiting to be read at once
+     */
+    public int getHighWaterMark() {
+        return router.getHighWaterMark();
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which data was last received
+     */
+    public long getLastDataNanos() {
+        return lastDataNanos;
+    }
+
+    /**
+     * Records a line that was not an NMEA sentence and offers it to the pending command. Called on the event thread.
+     */
+    private void replyReceived(String line) {
+        lastMessage = line;
+        messageAvailable = true;
+        PendingCommand pending = pendingCommand;
+        if (pending != null) {
+            pending.accept(line);
+        }
+    }
+
+    /**
+     * Moves data from the serial port into the ring buffer as soon as it arrives, and picks out command replies
+     */
+    private class IngestListener implements SerialPortDataListener {
+        private final byte[] chunk = new byte[RING_CAPACITY / 4];
+
+        @Override
+        public int getListeningEvents() {
+            return SerialPort.LISTENING_EVENT_DATA_AVAILABLE;
+        }
+
+        @Override
+        public void serialEvent(SerialPortEvent event) {
+            if (event.getEventType() != SerialPort.LISTENING_EVENT_DATA_AVAILABLE) {
+                return;
+            }
+
+            int available;
+            while ((available = serialPort.bytesAvailable()) > 0) {
+                int count = serialPort.readBytes(chunk, Math.min(available, chunk.length));
+                if (count <= 0) {
+                    break;
+                }
+                bytesReceived += count;
+                lastDataNanos = System.nanoTime();
+                router.route(chunk, 0, count);
+            }
+
+            Thread waiting = reader;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
         }
     }
 }
@@ -18,41 +18,70 @@
 
 package org.haland.javaasv.pilot;
 
-import net.sf.marineapi.nmea.event.SentenceEvent;
-import net.sf.marineapi.nmea.event.SentenceListener;
-import net.sf.marineapi.nmea.io.SentenceReader;
-import net.sf.marineapi.nmea.sentence.RMCSentence;
-import net.sf.marineapi.nmea.sentence.Sentence;
-import net.sf.marineapi.nmea.util.DataStatus;
-import net.sf.marineapi.nmea.util.Position;
 import net.sf.marineapi.nmea.util.Time;
 import org.haland.javaasv.config.AllConfig;
 import org.tinylog.Logger;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
- * A class to parse incoming data from the serial GPS hat. Implementation of {@link GPSProviderInterface}
+ * A class to parse incoming data from the serial GPS hat. Implementation of {@link GPSProviderInterface}. A decode
+ * thread takes the data the {@link GPSHat} has received and feeds it to an {@link NmeaDecoder}, and RMC and VTG
+ * sentences update the values served here. If no data arrives for the stall timeout, the fix is reported as lost.
+ * Values are published together through a {@link GPSSnapshotPublisher}, so {@link #readSnapshot(GPSSnapshot)} never
+ * mixes two updates. The single-value getters each allocate a snapshot and are meant for use outside the pilot loop.
  */
 public class GPSHatParser implements GPSProviderInterface {
+    private static final int READ_BUFFER_SIZE = 256;
+    private static final long MILLIS_PER_HOUR = 3600000;
+    private static final long MILLIS_PER_MINUTE = 60000;
+
+    /**
+     * Default time without GPS data before the GPS is considered stalled, in milliseconds
+     */
+    public static final long DEFAULT_STALL_TIMEOUT = 2000;
+
     private GPSHat gpsHat;
-    private SentenceReader reader;
+    private final NmeaDecoder decoder = new NmeaDecoder(this::sentenceDecoded);
+    private final long stallTimeout;
+    private Thread decodeThread;
+    private volatile boolean stalled;
+
+    private final GPSSnapshotPublisher publisher = new GPSSnapshotPublisher();
 
+    // The values last published, only touched by the decode thread
+    private boolean status;
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
+    private long updateTime = -1;
+    private double heading;
+    private double speed;
 
-    private volatile Position position;
-    private volatile DataStatus status;
-    private volatile Time updateTime;
-    private volatile double heading;
+    // The Time for updateTime, created when it is first asked for
+    private Time cachedUpdateTime;
+    private long cachedUpdateTimeMillis = -1;
+
+    private final CompletableFuture<Void> firstFix = new CompletableFuture<>();
 
     /**
-     * Configures and starts the GPS parser
-     * @param gpsHat the {@link GPSHat} instance to use
+     * Configures the GPS parser. The GPS is read once {@link #startGPS()} is called.
+     * @param gpsHat       the {@link GPSHat} instance to use
+     * @param stallTimeout time without GPS data before the fix is reported as lost, in milliseconds
      */
-    public GPSHatParser(GPSHat gpsHat) {
+    public GPSHatParser(GPSHat gpsHat, long stallTimeout) {
         Logger.info("Attempting to start GPSHatParser");
         this.gpsHat = gpsHat;
+        this.stallTimeout = stallTimeout;
         this.gpsHat.openPort();
-        this.reader = new SentenceReader(gpsHat.getInputStream());
-        reader.addSentenceListener(new RMCListener());
-        reader.start();
+    }
+
+    /**
+     * Configures the GPS parser with the default stall timeout. The GPS is read once {@link #startGPS()} is called.
+     * @param gpsHat the {@link GPSHat} instance to use
+     */
+    public GPSHatParser(GPSHat gpsHat) {
+        this(gpsHat, DEFAULT_STALL_TIMEOUT);
     }
 
     /**
@@ -69,7 +98,7 @@ public class GPSHatParser implements GPSProviderInterface {
      * @param config The instance of {@link AllConfig} to use
      */
     public GPSHatParser(AllConfig config) {
-        this(new GPSHat(config.getSerialConfig().getGpsPort()));
+        this(new GPSHat(config.getSerialConfig()), config.getSerialConfig().getGpsStallTimeout());
     }
 
     /**
@@ -80,87 +109,159 @@ public class GPSHatParser implements GPSProviderInterface {
     }
 
     /**
-     * Starts the GPS hat
-     * @throws InterruptedException
+     * Configures and starts the GPS hat, then starts reading it. The GPS is read even if configuration fails, as the
+     * module may already be reporting.
+     * @return <code>true</code> if the GPS hat acknowledged its configuration, <code>false</code> otherwise
      */
-    public void startGPS() {
-        gpsHat.setGPSPower(true);
-        gpsHat.setGPSDataReporting(true);
+    public synchronized boolean startGPS() {
+        boolean configured = gpsHat.configure();
+        if (decodeThread == null) {
+            decodeThread = new Thread(this::decodeGPS, "gps-decoder");
+            decodeThread.setDaemon(true);
+            decodeThread.start();
+        }
+        return configured;
+    }
+
+    @Override
+    public void readSnapshot(GPSSnapshot snapshot) {
+        publisher.read(snapshot);
+    }
+
+    private GPSSnapshot readSnapshot() {
+        GPSSnapshot snapshot = new GPSSnapshot();
+        publisher.read(snapshot);
+        return snapshot;
     }
 
     @Override
     public boolean getFixStatus() {
-        return (status == DataStatus.ACTIVE);
+        return readSnapshot().hasFix();
     }
 
     @Override
-    public Time getUpdateTime() {
-        return this.updateTime;
+    public CompletableFuture<Void> getFirstFix() {
+        return firstFix;
+    }
+
+    @Override
+    public synchronized Time getUpdateTime() {
+        long millis = readSnapshot().getUpdateTime();
+        if (millis < 0) {
+            return null;
+        }
+        if (millis != cachedUpdateTimeMillis) {
+            cachedUpdateTime = new Time((int) (millis / MILLIS_PER_HOUR), (int) (millis / MILLIS_PER_MINUTE % 60),
+                    (millis % MILLIS_PER_MINUTE) / 1000.0);
+            cachedUpdateTimeMillis = millis;
+        }
+        return cachedUpdateTime;
     }
 
     @Override
     public double getLatitude() {
-        return this.position.getLatitude();
+        return readSnapshot().getLatitude();
     }
 
     @Override
     public double getLongitude() {
-        return this.position.getLongitude();
+        return readSnapshot().getLongitude();
     }
 
     @Override
     public double[] getCoordinates() {
-        return new double[]{getLatitude(), getLongitude()};
+        GPSSnapshot snapshot = readSnapshot();
+        return new double[]{snapshot.getLatitude(), snapshot.getLongitude()};
     }
 
     @Override
     public double getHeading() {
-        return this.heading;
+        return readSnapshot().getHeading();
     }
 
-    private void setPosition(Position position) {
-        this.position = position;
+    @Override
+    public double getSpeed() {
+        return readSnapshot().getSpeed();
     }
 
-    private void setStatus(DataStatus status) {
-        this.status = status;
+    /**
+     * @return the decoder reading the GPS stream, for its statistics
+     */
+    public NmeaDecoder getDecoder() {
+        return decoder;
     }
 
-    private void setHeading(double heading) {
-        this.heading = heading;
+    /**
+     * @return <code>true</code> if no GPS data has arrived for the stall timeout
+     */
+    public boolean isStalled() {
+        return stalled;
     }
 
     /**
-     * Provides a {@link SentenceListener} that handles the serial event data
+     * Feeds data from the GPS hat to the decoder until interrupted, watching for the data to stop
      */
-    private class RMCListener implements SentenceListener {
-
-        @Override
-        public void readingPaused() {
-            System.out.println("-- Paused --");
+    private void decodeGPS() {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int count = gpsHat.read(buffer, 0, buffer.length, stallTimeout, TimeUnit.MILLISECONDS);
+                if (count > 0) {
+                    if (stalled) {
+                        Logger.info("GPS data resumed");
+                        stalled = false;
+                    }
+                    decoder.accept(buffer, 0, count);
+                } else if (!stalled) {
+                    stalled = true;
+                    Logger.warn("No GPS data for " + stallTimeout + " ms: " + gpsHat.getBytesReceived()
+                            + " bytes received, " + gpsHat.getBytesDropped() + " dropped, high water mark "
+                            + gpsHat.getHighWaterMark());
+                    status = false;
+                    publish();
+                }
+            }
+        } catch (InterruptedException e) {
+            Logger.info("GPS decoder stopped");
         }
+    }
 
-        @Override
-        public void readingStarted() {
-            System.out.println("-- Started --");
-        }
+    /**
+     * Updates the GPS values from a decoded sentence. Called on the decode thread.
+     */
+    private void sentenceDecoded(NmeaDecoder.SentenceType type, NmeaDecoder decoder) {
+        if (type == NmeaDecoder.SentenceType.RMC) {
+            boolean active = decoder.isActive();
+            if (active) {
+                latitude = decoder.getLatitude();
+                longitude = decoder.getLongitude();
+                updateTime = decoder.getTimeOfDay();
+                updateCourse(decoder);
+            }
+            status = active;
+            publish();
 
-        @Override
-        public void readingStopped() {
-            System.out.println("-- Stopped --");
+            // Published first so anything waiting on the fix sees it
+            if (active && firstFix.complete(null)) {
+                Logger.info("GPS fix acquired");
+            }
+        } else if (type == NmeaDecoder.SentenceType.VTG) {
+            updateCourse(decoder);
+            publish();
         }
+    }
 
-        @Override
-        public synchronized void sentenceRead(SentenceEvent event) {
-            Sentence s = event.getSentence();
+    private void publish() {
+        publisher.publish(status, latitude, longitude, heading, speed, updateTime);
+    }
 
-            if ("RMC".equals(s.getSentenceId())) {
-                Logger.trace("Received sentence" + s);
-                RMCSentence rmc = (RMCSentence) s;
-                setPosition(rmc.getPosition());
-                setStatus(rmc.getStatus());
-                setHeading(rmc.getCourse());
-            }
+    private void updateCourse(NmeaDecoder decoder) {
+        // Course is empty when stationary, so keep the last one
+        if (!Double.isNaN(decoder.getCourse())) {
+            heading = decoder.getCourse();
+        }
+        if (!Double.isNaN(decoder.getSpeed())) {
+            speed = decoder.getSpeed();
         }
     }
 }
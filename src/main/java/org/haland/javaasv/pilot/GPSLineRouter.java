@@ -0,0 +1,140 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.pilot;
+
+import org.haland.javaasv.util.ByteRingBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits the data received from the GPS hat into NMEA sentences and other lines. Each line is routed by its first
+ * byte: runs of sentences starting with <code>$</code> are copied into a {@link ByteRingBuffer} as they arrive, and
+ * every other line, such as a command echo or reply, is passed whole to a {@link ReplyListener}. Lines may be split
+ * across any number of calls to {@link #route}.
+ * <p>
+ * When the ring buffer is full, the NMEA bytes that do not fit are dropped and counted. A router is not thread-safe
+ * and should be fed from a single thread, which is also the thread the listener is called on.
+ */
+final class GPSLineRouter {
+    /**
+     * Receives each line that is not an NMEA sentence
+     */
+    interface ReplyListener {
+        /**
+         * Called once a line has ended
+         * @param line the line, without surrounding whitespace. Never empty.
+         */
+        void replyReceived(String line);
+    }
+
+    private final ByteRingBuffer ring;
+    private final ReplyListener listener;
+
+    // Replies longer than this are cut short
+    private final byte[] reply;
+    private int replyLength;
+
+    private boolean lineStart = true;
+    private boolean nmeaLine;
+
+    // Statistics, written only by the routing thread
+    private volatile long bytesDropped;
+    private volatile int highWaterMark;
+
+    /**
+     * Constructs a router
+     * @param ring           the buffer to copy NMEA sentences into
+     * @param maxReplyLength the most bytes of a reply to keep
+     * @param listener       the listener to pass other lines to
+     */
+    GPSLineRouter(ByteRingBuffer ring, int maxReplyLength, ReplyListener listener) {
+        this.ring = ring;
+        this.reply = new byte[maxReplyLength];
+        this.listener = listener;
+    }
+
+    /**
+     * Routes a range of received bytes
+     * @param data   the received bytes
+     * @param offset index of the first byte
+     * @param count  number of bytes
+     */
+    void route(byte[] data, int offset, int count) {
+        int end = offset + count;
+        int runStart = -1;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            if (lineStart) {
+                nmeaLine = b == '$';
+                lineStart = false;
+            }
+
+            if (nmeaLine) {
+                if (runStart < 0) {
+                    runStart = i;
+                }
+            } else {
+                if (runStart >= 0) {
+                    enqueue(data, runStart, i - runStart);
+                    runStart = -1;
+                }
+                if (b == '\n') {
+                    finishReply();
+                } else if (replyLength < reply.length) {
+                    reply[replyLength++] = b;
+                }
+            }
+
+            if (b == '\n') {
+                lineStart = true;
+            }
+        }
+        if (runStart >= 0) {
+            enqueue(data, runStart, end - runStart);
+        }
+    }
+
+    private void enqueue(byte[] data, int offset, int length) {
+        int written = ring.write(data, offset, length);
+        bytesDropped += length - written;
+        highWaterMark = Math.max(highWaterMark, ring.size());
+    }
+
+    private void finishReply() {
+        String line = new String(reply, 0, replyLength, StandardCharsets.US_ASCII).strip();
+        replyLength = 0;
+        if (!line.isEmpty()) {
+            listener.replyReceived(line);
+        }
+    }
+
+    /**
+     * @return the number of NMEA bytes dropped because the ring buffer was full
+     */
+    long getBytesDropped() {
+        return bytesDropped;
+    }
+
+    /**
+     * @return the most NMEA bytes that have been waiting in the ring buffer at once
+     */
+    int getHighWaterMark() {
+        return highWaterMark;
+    }
+}
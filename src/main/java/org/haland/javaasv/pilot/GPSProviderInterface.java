@@ -2,6 +2,8 @@ package org.haland.javaasv.pilot;
 
 import net.sf.marineapi.nmea.util.Time;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for a class providing GPS data to the pilot
  */
@@ -12,6 +14,14 @@ public interface GPSProviderInterface {
      */
     boolean getFixStatus();
 
+    /**
+     * Provides a future that completes as soon as the GPS first reports an active fix, so callers can wait for a fix
+     * without polling {@link #getFixStatus()}. The future is never completed exceptionally by the provider, so callers
+     * adding a timeout should do so on a copy.
+     * @return a {@link CompletableFuture} completed on the first active fix
+     */
+    CompletableFuture<Void> getFirstFix();
+
     /**
      * Provides the time of the most recent GPS update
      * @return {@link Time} object containing the time of the last update
@@ -41,4 +51,21 @@ public interface GPSProviderInterface {
      * @return the heading in degrees
      */
     double getHeading();
+
+    /**
+     * Provides the speed over ground of the most recent GPS update
+     * @return the speed in knots
+     */
+    double getSpeed();
+
+    /**
+     * Fills a snapshot with the values of a single GPS update, so that position, heading and fix status always agree.
+     * The default implementation reads each value separately, which is only consistent if the provider does not update
+     * while it runs; providers updated by another thread should override it.
+     * @param snapshot the {@link GPSSnapshot} to fill
+     */
+    default void readSnapshot(GPSSnapshot snapshot) {
+        snapshot.set(getFixStatus(), getLatitude(), getLongitude(), getHeading(), getSpeed(),
+                GPSSnapshot.toTimeOfDay(getUpdateTime()));
+    }
 }
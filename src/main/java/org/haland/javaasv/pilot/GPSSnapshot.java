@@ -0,0 +1,121 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.pilot;
+
+import net.sf.marineapi.nmea.util.Time;
+
+/**
+ * A mutable holder for one consistent reading of a {@link GPSProviderInterface}. Callers keep one instance and fill
+ * it with {@link GPSProviderInterface#readSnapshot(GPSSnapshot)} each time they need the GPS, so every value they use
+ * comes from the same update and nothing is allocated.
+ */
+public class GPSSnapshot {
+    private boolean fix;
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
+    private double heading;
+    private double speed;
+    private long updateTime = -1;
+
+    /**
+     * Sets every value of the snapshot
+     * @param fix        whether the GPS has a fix
+     * @param latitude   latitude in decimal degrees
+     * @param longitude  longitude in decimal degrees
+     * @param heading    course over ground in degrees
+     * @param speed      speed over ground in knots
+     * @param updateTime UTC time of day of the update in milliseconds, or -1 if unknown
+     */
+    public void set(boolean fix, double latitude, double longitude, double heading, double speed, long updateTime) {
+        this.fix = fix;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.heading = heading;
+        this.speed = speed;
+        this.updateTime = updateTime;
+    }
+
+    /**
+     * Copies every value from another snapshot
+     * @param other the snapshot to copy
+     */
+    public void set(GPSSnapshot other) {
+        set(other.fix, other.latitude, other.longitude, other.heading, other.speed, other.updateTime);
+    }
+
+    /**
+     * @return <code>true</code> if the GPS had a fix
+     */
+    public boolean hasFix() {
+        return fix;
+    }
+
+    /**
+     * @return latitude in decimal degrees
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return longitude in decimal degrees
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return course over ground in degrees
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * @return speed over ground in knots
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return UTC time of day of the update in milliseconds, or -1 if unknown
+     */
+    public long getUpdateTime() {
+        return updateTime;
+    }
+
+    /**
+     * Converts a {@link Time} to the milliseconds since midnight used by {@link #getUpdateTime()}
+     * @param time the time, which may be null
+     * @return the time of day in milliseconds, or -1 if <code>time</code> is null
+     */
+    static long toTimeOfDay(Time time) {
+        if (time == null) {
+            return -1;
+        }
+        return Math.round(((time.getHour() * 60 + time.getMinutes()) * 60 + time.getSeconds()) * 1000);
+    }
+
+    @Override
+    public String toString() {
+        return "GPSSnapshot{fix=" + fix + ", latitude=" + latitude + ", longitude=" + longitude + ", heading="
+                + heading + ", speed=" + speed + ", updateTime=" + updateTime + "}";
+    }
+}
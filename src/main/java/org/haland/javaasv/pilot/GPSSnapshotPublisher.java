@@ -0,0 +1,114 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.pilot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Publishes GPS values from one writer thread to any number of readers without locks, using a sequence lock. The
+ * writer makes the sequence odd while it updates the values and even again when it is done. Readers copy the values
+ * and retry if the sequence was odd or changed while they copied, so a reader never sees values from two different
+ * updates. Readers do not allocate and never block the writer.
+ * <p>
+ * Only one thread may call {@link #publish}.
+ */
+public class GPSSnapshotPublisher {
+    private static final VarHandle SEQUENCE;
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(GPSSnapshotPublisher.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused") // Accessed through SEQUENCE
+    private volatile long sequence;
+
+    // Plain fields, guarded by the sequence
+    private boolean fix;
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
+    private double heading;
+    private double speed;
+    private long updateTime = -1;
+
+    /**
+     * Publishes a new set of values
+     * @param fix        whether the GPS has a fix
+     * @param latitude   latitude in decimal degrees
+     * @param longitude  longitude in decimal degrees
+     * @param heading    course over ground in degrees
+     * @param speed      speed over ground in knots
+     * @param updateTime UTC time of day of the update in milliseconds, or -1 if unknown
+     */
+    public void publish(boolean fix, double latitude, double longitude, double heading, double speed,
+                        long updateTime) {
+        long start = (long) SEQUENCE.getOpaque(this);
+        SEQUENCE.setOpaque(this, start + 1);
+        // Readers must not see any of the new values before the odd sequence
+        VarHandle.storeStoreFence();
+
+        this.fix = fix;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.heading = heading;
+        this.speed = speed;
+        this.updateTime = updateTime;
+
+        SEQUENCE.setRelease(this, start + 2);
+    }
+
+    /**
+     * Copies the most recently published values
+     * @param snapshot the snapshot to fill
+     */
+    public void read(GPSSnapshot snapshot) {
+        while (true) {
+            long before = (long) SEQUENCE.getAcquire(this);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            boolean fix = this.fix;
+            double latitude = this.latitude;
+            double longitude = this.longitude;
+            double heading = this.heading;
+            double speed = this.speed;
+            long updateTime = this.updateTime;
+
+            // The copies above must complete before the sequence is checked again
+            VarHandle.loadLoadFence();
+            if ((long) SEQUENCE.getOpaque(this) == before) {
+                snapshot.set(fix, latitude, longitude, heading, speed, updateTime);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the number of updates published so far
+     */
+    public long getPublishCount() {
+        return (long) SEQUENCE.getAcquire(this) / 2;
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.pilot;
+
+/**
+ * A streaming NMEA 0183 decoder for the sentences the pilot uses: RMC, GGA and VTG from any talker. Bytes are fed in
+ * as they arrive from the receiver. Each complete sentence has its checksum checked in place, and its fields are
+ * parsed into primitive fields of the decoder, so decoding allocates nothing. Other sentences are skipped once their
+ * checksum has been checked.
+ * <p>
+ * Each sentence overwrites only the values it carries, and the {@link SentenceListener} is told which sentence was
+ * decoded. Fields missing from a sentence are decoded as {@link Double#NaN}, or -1 for integers. A decoder is not
+ * thread-safe and should be fed from a single thread, which is also the thread the listener is called on.
+ */
+public final class NmeaDecoder {
+    /**
+     * The sentences the decoder parses
+     */
+    public enum SentenceType {
+        /**
+         * Recommended minimum data: time, status, position, speed and course
+         */
+        RMC,
+
+        /**
+         * Fix data: time, position, fix quality, satellites, HDOP and altitude
+         */
+        GGA,
+
+        /**
+         * Course and speed over ground
+         */
+        VTG
+    }
+
+    /**
+     * Receives notice of each decoded sentence
+     */
+    public interface SentenceListener {
+        /**
+         * Called once the fields of a sentence have been decoded
+         * @param type    the type of sentence
+         * @param decoder the decoder, whose getters now hold the sentence's values
+         */
+        void sentenceDecoded(SentenceType type, NmeaDecoder decoder);
+    }
+
+    // The standard limits sentences to 82 characters, but some receivers send longer proprietary ones
+    private static final int MAX_SENTENCE_LENGTH = 128;
+    private static final int MAX_FIELDS = 24;
+
+    // Length of the address field, such as GPRMC
+    private static final int ADDRESS_LENGTH = 5;
+
+    // Fields parsed here are short, so the mantissa and scale are always exact doubles
+    private static final int MAX_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final SentenceListener listener;
+
+    // The sentence between '$' and the line end, or -1 while waiting for a '$'
+    private final byte[] sentence = new byte[MAX_SENTENCE_LENGTH];
+    private int length = -1;
+
+    // Index of the first byte of each field, plus one past the end of the last field
+    private final int[] fieldStarts = new int[MAX_FIELDS + 1];
+    private int fieldCount;
+
+    private long timeOfDay = -1;
+    private boolean active;
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
+    private double speed = Double.NaN;
+    private double course = Double.NaN;
+    private int fixQuality = -1;
+    private int satellites = -1;
+    private double hdop = Double.NaN;
+    private double altitude = Double.NaN;
+
+    private long sentenceCount;
+    private long checksumErrorCount;
+    private long malformedCount;
+
+    /**
+     * Constructs a new decoder
+     * @param listener the listener to notify of each decoded sentence
+     */
+    public NmeaDecoder(SentenceListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Decodes a range of bytes from the receiver. Sentences may be split across calls.
+     * @param data   the bytes to decode
+     * @param offset index of the first byte
+     * @param count  the number of bytes
+     */
+    public void accept(byte[] data, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            accept(data[i]);
+        }
+    }
+
+    /**
+     * Decodes a single byte from the receiver
+     * @param b the byte
+     */
+    public void accept(byte b) {
+        if (b == '$') {
+            // A new sentence always starts over, discarding any unterminated one
+            length = 0;
+        } else if (length < 0) {
+            return;
+        } else if (b == '\r' || b == '\n') {
+            if (length > 0) {
+                decodeSentence();
+            }
+            length = -1;
+        } else if (length == sentence.length) {
+            malformedCount++;
+            length = -1;
+        } else {
+            sentence[length++] = b;
+        }
+    }
+
+    /**
+     * Checks the checksum of the buffered sentence, then splits and decodes it
+     */
+    private void decodeSentence() {
+        int checksumStart = length - 3;
+        if (checksumStart < 0 || sentence[checksumStart] != '*') {
+            checksumErrorCount++;
+            return;
+        }
+
+        int checksum = 0;
+        for (int i = 0; i < checksumStart; i++) {
+            checksum ^= sentence[i];
+        }
+        int high = hexValue(sentence[checksumStart + 1]);
+        int low = hexValue(sentence[checksumStart + 2]);
+        if (high < 0 || low < 0 || checksum != (high << 4 | low)) {
+            checksumErrorCount++;
+            return;
+        }
+        sentenceCount++;
+
+        fieldCount = 1;
+        fieldStarts[0] = 0;
+        for (int i = 0; i < checksumStart && fieldCount < MAX_FIELDS; i++) {
+            if (sentence[i] == ',') {
+                fieldStarts[fieldCount++] = i + 1;
+            }
+        }
+        fieldStarts[fieldCount] = checksumStart + 1;
+
+        if (fieldEnd(0) != ADDRESS_LENGTH) {
+            return;
+        }
+        SentenceType type = sentenceType(sentence[2], sentence[3], sentence[4]);
+        if (type == null) {
+            return;
+        }
+
+        boolean decoded;
+        switch (type) {
+            case RMC:
+                decoded = decodeRMC();
+                break;
+            case GGA:
+                decoded = decodeGGA();
+                break;
+            default:
+                decoded = decodeVTG();
+                break;
+        }
+
+        if (decoded) {
+            listener.sentenceDecoded(type, this);
+        } else {
+            malformedCount++;
+        }
+    }
+
+    private static SentenceType sentenceType(byte first, byte second, byte third) {
+        if (first == 'R' && second == 'M' && third == 'C') {
+            return SentenceType.RMC;
+        } else if (first == 'G' && second == 'G' && third == 'A') {
+            return SentenceType.GGA;
+        } else if (first == 'V' && second == 'T' && third == 'G') {
+            return SentenceType.VTG;
+        }
+        return null;
+    }
+
+    /**
+     * <code>$--RMC,hhmmss.ss,A,llll.ll,a,yyyyy.yy,a,x.x,x.x,ddmmyy,...</code>
+     */
+    private boolean decodeRMC() {
+        if (fieldCount < 10) {
+            return false;
+        }
+        timeOfDay = parseTime(1);
+        active = charAt(2) == 'A';
+        latitude = parseCoordinate(3, 'S');
+        longitude = parseCoordinate(5, 'W');
+        speed = parseNumber(7);
+        course = parseNumber(8);
+        return true;
+    }
+
+    /**
+     * <code>$--GGA,hhmmss.ss,llll.ll,a,yyyyy.yy,a,x,xx,x.x,x.x,M,...</code>
+     */
+    private boolean decodeGGA() {
+        if (fieldCount < 10) {
+            return false;
+        }
+        timeOfDay = parseTime(1);
+        latitude = parseCoordinate(2, 'S');
+        longitude = parseCoordinate(4, 'W');
+        fixQuality = parseInteger(6);
+        satellites = parseInteger(7);
+        hdop = parseNumber(8);
+        altitude = parseNumber(9);
+        return true;
+    }
+
+    /**
+     * <code>$--VTG,x.x,T,x.x,M,x.x,N,x.x,K,...</code>
+     */
+    private boolean decodeVTG() {
+        if (fieldCount < 9) {
+            return false;
+        }
+        course = parseNumber(1);
+        speed = parseNumber(5);
+        return true;
+    }
+
+    private int fieldEnd(int field) {
+        return fieldStarts[field + 1] - 1;
+    }
+
+    private byte charAt(int field) {
+        return fieldStarts[field] < fieldEnd(field) ? sentence[fieldStarts[field]] : 0;
+    }
+
+    /**
+     * Parses a decimal field without allocating
+     * @return the value, or NaN if the field is empty or not a number
+     */
+    private double parseNumber(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnd(field);
+        if (start == end) {
+            return Double.NaN;
+        }
+
+        boolean negative = sentence[start] == '-';
+        if (negative) {
+            start++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (int i = start; i < end; i++) {
+            byte b = sentence[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0 || digits > MAX_DIGITS) {
+            return Double.NaN;
+        }
+
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private int parseInteger(int field) {
+        double value = parseNumber(field);
+        return Double.isNaN(value) ? -1 : (int) value;
+    }
+
+    /**
+     * Parses a <code>ddmm.mm</code> or <code>dddmm.mm</code> field and the hemisphere field after it
+     * @return the coordinate in signed decimal degrees, or NaN if it is missing
+     */
+    private double parseCoordinate(int field, char negativeHemisphere) {
+        double value = parseNumber(field);
+        double degrees = Math.floor(value / 100);
+        double coordinate = degrees + (value - degrees * 100) / 60;
+        return charAt(field + 1) == negativeHemisphere ? -coordinate : coordinate;
+    }
+
+    /**
+     * Parses a <code>hhmmss.ss</code> field
+     * @return the time of day in milliseconds, or -1 if it is missing
+     */
+    private long parseTime(int field) {
+        double value = parseNumber(field);
+        if (Double.isNaN(value)) {
+            return -1;
+        }
+        long hours = (long) (value / 10000);
+        long minutes = (long) (value / 100) % 100;
+        double seconds = value - hours * 10000 - minutes * 100;
+        return (hours * 3600 + minutes * 60) * 1000 + Math.round(seconds * 1000);
+    }
+
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        } else if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        } else if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the UTC time of day of the last RMC or GGA sentence in milliseconds, or -1 if it had none
+     */
+    public long getTimeOfDay() {
+        return timeOfDay;
+    }
+
+    /**
+     * @return <code>true</code> if the last RMC sentence reported an active fix
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return the latitude of the last RMC or GGA sentence in decimal degrees
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return the longitude of the last RMC or GGA sentence in decimal degrees
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return the speed over ground of the last RMC or VTG sentence in knots
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return the true course over ground of the last RMC or VTG sentence in degrees
+     */
+    public double getCourse() {
+        return course;
+    }
+
+    /**
+     * @return the fix quality of the last GGA sentence, where 0 is no fix
+     */
+    public int getFixQuality() {
+        return fixQuality;
+    }
+
+    /**
+     * @return the number of satellites used in the last GGA sentence
+     */
+    public int getSatellites() {
+        return satellites;
+    }
+
+    /**
+     * @return the horizontal dilution of precision of the last GGA sentence
+     */
+    public double getHdop() {
+        return hdop;
+    }
+
+    /**
+     * @return the altitude above mean sea level of the last GGA sentence in meters
+     */
+    public double getAltitude() {
+        return altitude;
+    }
+
+    /**
+     * @return the number of sentences with a valid checksum, of any type
+     */
+    public long getSentenceCount() {
+        return sentenceCount;
+    }
+
+    /**
+     * @return the number of sentences dropped for a missing or wrong checksum
+     */
+    public long getChecksumErrorCount() {
+        return checksumErrorCount;
+    }
+
+    /**
+     * @return the number of sentences dropped for being too long or missing fields
+     */
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+}
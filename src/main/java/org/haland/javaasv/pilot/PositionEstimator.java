@@ -0,0 +1,324 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.pilot;
+
+import net.sf.marineapi.nmea.util.Time;
+import org.haland.javaasv.util.EarthRadius;
+import org.haland.javaasv.util.MonotonicClock;
+import org.haland.javaasv.util.SystemClock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link GPSProviderInterface} that estimates position between fixes from another provider. Each fix, together with
+ * its speed and course over ground, updates a constant-velocity Kalman filter in a local north/east frame centered on
+ * the first fix. Queries extrapolate the filtered position to the current time, so the pilot can run faster than the
+ * GPS update rate without steering on a stale position.
+ * <p>
+ * A new fix is recognized by a change in the update time of the provider's {@link GPSSnapshot}. The estimator takes
+ * the time it first sees a fix as the time of the fix, so it should be queried at least as often as the GPS updates.
+ */
+public class PositionEstimator implements GPSProviderInterface {
+    /**
+     * Default standard deviation of a GPS position, in meters
+     */
+    public static final double DEFAULT_POSITION_SIGMA = 3;
+
+    /**
+     * Default standard deviation of a GPS speed, in meters per second
+     */
+    public static final double DEFAULT_VELOCITY_SIGMA = 0.2;
+
+    /**
+     * Default standard deviation of the vessel's acceleration, in meters per second squared
+     */
+    public static final double DEFAULT_ACCELERATION_SIGMA = 0.5;
+
+    /**
+     * Default longest time to extrapolate past the last fix, in milliseconds
+     */
+    public static final long DEFAULT_MAX_EXTRAPOLATION = 2000;
+
+    // Below this speed in meters per second the estimated course is mostly noise
+    private static final double MIN_COURSE_SPEED = 0.5;
+
+    private static final double METERS_PER_SECOND_PER_KNOT = 1852.0 / 3600.0;
+    private static final double EARTH_RADIUS = EarthRadius.METERS.getValue();
+
+    private final GPSProviderInterface gps;
+    private final MonotonicClock clock;
+    private final double positionVariance;
+    private final double velocityVariance;
+    private final double accelerationVariance;
+    private final long maxExtrapolationNanos;
+
+    private final Axis north = new Axis();
+    private final Axis east = new Axis();
+
+    // The provider's latest values, and the estimate served from the single-value getters
+    private final GPSSnapshot measurement = new GPSSnapshot();
+    private final GPSSnapshot estimate = new GPSSnapshot();
+
+    private boolean initialized;
+    private long lastFixTime = -1;
+    private long lastFilterNanos;
+
+    // Origin of the local frame
+    private double originLatitude;
+    private double originLongitude;
+    private double metersPerRadianLongitude;
+
+    /**
+     * Constructs a new estimator with default noise parameters on the {@link SystemClock}
+     * @param gps the provider of GPS fixes
+     */
+    public PositionEstimator(GPSProviderInterface gps) {
+        this(gps, SystemClock.getInstance());
+    }
+
+    /**
+     * Constructs a new estimator with default noise parameters
+     * @param gps   the provider of GPS fixes
+     * @param clock the clock to extrapolate with
+     */
+    public PositionEstimator(GPSProviderInterface gps, MonotonicClock clock) {
+        this(gps, clock, DEFAULT_POSITION_SIGMA, DEFAULT_VELOCITY_SIGMA, DEFAULT_ACCELERATION_SIGMA,
+                DEFAULT_MAX_EXTRAPOLATION);
+    }
+
+    /**
+     * Constructs a new estimator
+     * @param gps                the provider of GPS fixes
+     * @param clock              the clock to extrapolate with
+     * @param positionSigma      standard deviation of a GPS position, in meters
+     * @param velocitySigma      standard deviation of a GPS speed, in meters per second
+     * @param accelerationSigma  standard deviation of the vessel's acceleration, in meters per second squared
+     * @param maxExtrapolation   longest time to extrapolate past the last fix, in milliseconds
+     */
+    public PositionEstimator(GPSProviderInterface gps, MonotonicClock clock, double positionSigma,
+                             double velocitySigma, double accelerationSigma, long maxExtrapolation) {
+        this.gps = gps;
+        this.clock = clock;
+        this.positionVariance = positionSigma * positionSigma;
+        this.velocityVariance = velocitySigma * velocitySigma;
+        this.accelerationVariance = accelerationSigma * accelerationSigma;
+        this.maxExtrapolationNanos = TimeUnit.MILLISECONDS.toNanos(maxExtrapolation);
+    }
+
+    @Override
+    public boolean getFixStatus() {
+        return gps.getFixStatus();
+    }
+
+    @Override
+    public CompletableFuture<Void> getFirstFix() {
+        return gps.getFirstFix();
+    }
+
+    @Override
+    public Time getUpdateTime() {
+        return gps.getUpdateTime();
+    }
+
+    /**
+     * Fills a snapshot with the position extrapolated to the current time. The heading is the course over ground of
+     * the filtered velocity, or the GPS course when moving too slowly for the estimate to be meaningful. Until the
+     * first fix the provider's values are passed through.
+     * @param snapshot the {@link GPSSnapshot} to fill
+     */
+    @Override
+    public synchronized void readSnapshot(GPSSnapshot snapshot) {
+        if (!update()) {
+            snapshot.set(measurement);
+            return;
+        }
+
+        double dt = extrapolationTime();
+        double speed = Math.hypot(north.velocity, east.velocity);
+        double heading = measurement.getHeading();
+        if (speed >= MIN_COURSE_SPEED) {
+            heading = Math.toDegrees(Math.atan2(east.velocity, north.velocity));
+            heading = heading < 0 ? heading + 360 : heading;
+        }
+        snapshot.set(measurement.hasFix(), toLatitude(north.extrapolate(dt)), toLongitude(east.extrapolate(dt)),
+                heading, speed / METERS_PER_SECOND_PER_KNOT, measurement.getUpdateTime());
+    }
+
+    @Override
+    public synchronized double getLatitude() {
+        readSnapshot(estimate);
+        return estimate.getLatitude();
+    }
+
+    @Override
+    public synchronized double getLongitude() {
+        readSnapshot(estimate);
+        return estimate.getLongitude();
+    }
+
+    @Override
+    public synchronized double[] getCoordinates() {
+        readSnapshot(estimate);
+        return new double[]{estimate.getLatitude(), estimate.getLongitude()};
+    }
+
+    @Override
+    public synchronized double getHeading() {
+        readSnapshot(estimate);
+        return estimate.getHeading();
+    }
+
+    @Override
+    public synchronized double getSpeed() {
+        readSnapshot(estimate);
+        return estimate.getSpeed();
+    }
+
+    /**
+     * Reads the provider, and feeds a new fix into the filter if there is one
+     * @return <code>true</code> if the filter has an estimate, <code>false</code> if it has not yet seen a fix
+     */
+    private boolean update() {
+        gps.readSnapshot(measurement);
+        long fixTime = measurement.getUpdateTime();
+        if (fixTime < 0 || !measurement.hasFix() || fixTime == lastFixTime) {
+            return initialized;
+        }
+        lastFixTime = fixTime;
+
+        long now = clock.nanoTime();
+        double latitude = Math.toRadians(measurement.getLatitude());
+        double longitude = Math.toRadians(measurement.getLongitude());
+        double speed = measurement.getSpeed() * METERS_PER_SECOND_PER_KNOT;
+        double course = Math.toRadians(measurement.getHeading());
+
+        if (!initialized) {
+            originLatitude = latitude;
+            originLongitude = longitude;
+            metersPerRadianLongitude = EARTH_RADIUS * Math.cos(latitude);
+        }
+
+        double northPosition = (latitude - originLatitude) * EARTH_RADIUS;
+        double eastPosition = remainder(longitude - originLongitude) * metersPerRadianLongitude;
+        double northVelocity = speed * Math.cos(course);
+        double eastVelocity = speed * Math.sin(course);
+
+        if (initialized) {
+            double dt = (now - lastFilterNanos) / 1e9;
+            north.predict(dt, accelerationVariance);
+            east.predict(dt, accelerationVariance);
+            north.correct(northPosition, northVelocity, positionVariance, velocityVariance);
+            east.correct(eastPosition, eastVelocity, positionVariance, velocityVariance);
+        } else {
+            north.reset(northPosition, northVelocity, positionVariance, velocityVariance);
+            east.reset(eastPosition, eastVelocity, positionVariance, velocityVariance);
+            initialized = true;
+        }
+        lastFilterNanos = now;
+        return true;
+    }
+
+    /**
+     * @return the time since the last filter update in seconds, limited to the maximum extrapolation
+     */
+    private double extrapolationTime() {
+        return Math.min(clock.nanoTime() - lastFilterNanos, maxExtrapolationNanos) / 1e9;
+    }
+
+    private double toLatitude(double northPosition) {
+        return Math.toDegrees(originLatitude + northPosition / EARTH_RADIUS);
+    }
+
+    private double toLongitude(double eastPosition) {
+        return Math.toDegrees(remainder(originLongitude + eastPosition / metersPerRadianLongitude));
+    }
+
+    /**
+     * Wraps an angle in radians to between -pi and pi
+     */
+    private static double remainder(double angle) {
+        return Math.IEEEremainder(angle, 2 * Math.PI);
+    }
+
+    /**
+     * Position and velocity along one axis of the local frame, with their covariance. The axes are filtered
+     * independently, which is exact for a constant-velocity model with uncorrelated north and east noise.
+     */
+    private static final class Axis {
+        private double position;
+        private double velocity;
+
+        // Covariance matrix [[pp, pv], [pv, vv]]
+        private double pp;
+        private double pv;
+        private double vv;
+
+        void reset(double position, double velocity, double positionVariance, double velocityVariance) {
+            this.position = position;
+            this.velocity = velocity;
+            pp = positionVariance;
+            pv = 0;
+            vv = velocityVariance;
+        }
+
+        double extrapolate(double dt) {
+            return position + velocity * dt;
+        }
+
+        /**
+         * Advances the state by <code>dt</code> seconds under white noise acceleration
+         */
+        void predict(double dt, double accelerationVariance) {
+            double dt2 = dt * dt;
+            position += velocity * dt;
+            pp += 2 * dt * pv + dt2 * vv + accelerationVariance * dt2 * dt2 / 4;
+            pv += dt * vv + accelerationVariance * dt2 * dt / 2;
+            vv += accelerationVariance * dt2;
+        }
+
+        /**
+         * Corrects the state with a measurement of both position and velocity
+         */
+        void correct(double measuredPosition, double measuredVelocity, double positionVariance,
+                     double velocityVariance) {
+            // Innovation covariance S = P + R, and gain K = P * S^-1
+            double spp = pp + positionVariance;
+            double svv = vv + velocityVariance;
+            double det = spp * svv - pv * pv;
+            double kpp = (pp * svv - pv * pv) / det;
+            double kpv = pv * positionVariance / det;
+            double kvp = pv * velocityVariance / det;
+            double kvv = (vv * spp - pv * pv) / det;
+
+            double positionInnovation = measuredPosition - position;
+            double velocityInnovation = measuredVelocity - velocity;
+            position += kpp * positionInnovation + kpv * velocityInnovation;
+            velocity += kvp * positionInnovation + kvv * velocityInnovation;
+
+            // P = (I - K) * P
+            double newPp = (1 - kpp) * pp - kpv * pv;
+            double newPv = (1 - kpp) * pv - kpv * vv;
+            double newVv = (1 - kvv) * vv - kvp * pv;
+            pp = newPp;
+            pv = newPv;
+            vv = newVv;
+        }
+    }
+}
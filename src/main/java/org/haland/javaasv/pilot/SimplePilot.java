@@ -5,14 +5,23 @@ import org.haland.javaasv.controller.ControllerType;
 import org.haland.javaasv.controller.PIDController;
 import org.haland.javaasv.helm.HelmInterface;
 import org.haland.javaasv.message.*;
+import org.haland.javaasv.route.IndexedRouteInterface;
 import org.haland.javaasv.route.RouteEndException;
 import org.haland.javaasv.route.RouteInterface;
+import org.haland.javaasv.route.RouteProgressEngine;
 import org.haland.javaasv.route.WaypointInterface;
 import org.haland.javaasv.util.EarthRadius;
-import org.haland.javaasv.util.PilotUtil;
+import org.haland.javaasv.util.FixedRateTimer;
+import org.haland.javaasv.util.MonotonicClock;
+import org.haland.javaasv.util.NavigationKernel;
+import org.haland.javaasv.util.SystemClock;
 import org.tinylog.Logger;
 
-import static java.lang.Thread.sleep;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.toDegrees;
+import static java.lang.Math.toRadians;
 
 /**
  *
@@ -36,6 +45,21 @@ public class SimplePilot implements MessengerClientInterface {
     private PilotMessageFactory messageFactory;
     private RouteInterface currentRoute;
 
+    // Bearing, distance and XTD for the current position, updated by updateNavigation()
+    private final NavigationKernel navigation = new NavigationKernel();
+
+    // The GPS values navigation is calculated from, read once per loop by readGPS(). Only the pilot loop may use this
+    // or navigation; code running on other threads reads into its own GPSSnapshot.
+    private final GPSSnapshot gpsSnapshot = new GPSSnapshot();
+
+    // Null unless the current route is an IndexedRouteInterface
+    private RouteProgressEngine progressEngine;
+
+    // Set by rejoinRoute(), and cleared by the pilot loop once it has rejoined
+    private volatile boolean rejoinRequested;
+
+    private MonotonicClock clock = SystemClock.getInstance();
+
     /**
      * Construct a new SimplePilot. PID controllers should be configured before injection.
      *
@@ -70,6 +94,18 @@ public class SimplePilot implements MessengerClientInterface {
         this(DEFAULT_CLIENT_ID, server, helm, throttleController, rudderController, gps);
     }
 
+    /**
+     * Sets the clock that paces the pilot loop, and passes it to the attached {@link Controller}s. This should be
+     * called before the pilot is started.
+     *
+     * @param clock the {@link MonotonicClock} to use
+     */
+    public void setClock(MonotonicClock clock) {
+        this.clock = clock;
+        throttleController.setClock(clock);
+        rudderController.setClock(clock);
+    }
+
     /**
      * Starts the attached {@link Controller}s
      */
@@ -79,31 +115,71 @@ public class SimplePilot implements MessengerClientInterface {
     }
 
     /**
-     * Tells the pilot to begin running
+     * Tells the pilot to begin running. The loop runs at a fixed rate, so <code>period</code> is the time between the
+     * starts of successive iterations.
      *
      * @param period Loop period in milliseconds
+     * @return a {@link CompletableFuture} completed once the pilot has started
+     * @see #startPilot(long, long)
      */
-    public void startPilot(long period) {
-        if (gps.getFixStatus()) {
-            Logger.info("GPS ready, Starting SimplePilot");
+    public CompletableFuture<Void> startPilot(long period) {
+        return startPilot(period, 0);
+    }
 
-            if (thread != null && thread.isAlive() && worker != null
-                    && worker.isRunning()) {
-                throw new IllegalStateException("Pilot worker is already running");
-            }
-            worker = new PilotWorker(this, period);
-            thread = new Thread(worker);
-            startControllers();
-            thread.start();
+    /**
+     * Tells the pilot to begin running as soon as the GPS has a fix. This does not block: if there is no fix yet, the
+     * pilot is started by the GPS provider's thread when the first active fix arrives.
+     *
+     * @param period     Loop period in milliseconds
+     * @param fixTimeout Time to wait for a GPS fix in milliseconds, or 0 to wait indefinitely
+     * @return a {@link CompletableFuture} completed once the pilot has started, or completed exceptionally with a
+     * {@link java.util.concurrent.TimeoutException} if there was no fix in time
+     * @throws IllegalStateException if the pilot is already running
+     */
+    public CompletableFuture<Void> startPilot(long period, long fixTimeout) {
+        if (isRunning()) {
+            throw new IllegalStateException("Pilot worker is already running");
+        }
+
+        CompletableFuture<Void> fix;
+        if (gps.getFixStatus()) {
+            fix = CompletableFuture.completedFuture(null);
         } else {
-            Logger.warn("GPS not ready, delaying start by 5s");
-            try {
-                sleep(5000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            Logger.warn("GPS not ready, waiting for a fix");
+            // Copy so that a timeout here does not complete the provider's future
+            fix = gps.getFirstFix().copy();
+            if (fixTimeout > 0) {
+                fix.orTimeout(fixTimeout, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        return fix.thenRun(() -> startWorker(period)).whenComplete((result, e) -> {
+            if (e != null) {
+                Logger.error("SimplePilot did not start: " + e);
             }
-            startPilot(period);
+        });
+    }
+
+    /**
+     * Starts the pilot worker thread
+     */
+    private synchronized void startWorker(long period) {
+        if (isRunning()) {
+            throw new IllegalStateException("Pilot worker is already running");
         }
+        Logger.info("GPS ready, Starting SimplePilot");
+        worker = new PilotWorker(this, period);
+        thread = new Thread(worker);
+        // Snap a route loaded part way along onto the segment nearest the first fix
+        if (progressEngine != null) {
+            rejoinRoute();
+        }
+        startControllers();
+        thread.start();
+    }
+
+    private synchronized boolean isRunning() {
+        return thread != null && thread.isAlive() && worker != null && worker.isRunning();
     }
 
     /**
@@ -127,27 +203,42 @@ public class SimplePilot implements MessengerClientInterface {
     }
 
     /**
-     * Calculates the cross-track distance from the current route segment
+     * Calculates the cross-track distance from the current route segment. This may be called from any thread, so it
+     * reads the GPS itself rather than using the pilot loop's last reading.
      *
      * @return The XTD in nmi
      */
     public double calculateCrossTrackDistance(EarthRadius earthRadius) throws RouteEndException {
-        return PilotUtil.calculateCrossTrackDistance(currentRoute.getPreviousWaypoint().getCoordinates(),
-                currentRoute.getNextWaypoint().getCoordinates(), gps.getCoordinates(), earthRadius);
+        GPSSnapshot snapshot = new GPSSnapshot();
+        gps.readSnapshot(snapshot);
+        NavigationKernel kernel = new NavigationKernel();
+        kernel.setSegment(currentRoute.getCurrentSegment());
+        kernel.update(toRadians(snapshot.getLatitude()), toRadians(snapshot.getLongitude()));
+        return kernel.getCrossTrackDistance(earthRadius);
+    }
+
+    /**
+     * Reads a consistent set of GPS values into the snapshot used for navigation. Only called by the pilot loop.
+     */
+    private void readGPS() {
+        gps.readSnapshot(gpsSnapshot);
+    }
+
+    /**
+     * Updates the {@link NavigationKernel} with the current route segment and the last GPS position read
+     */
+    private void updateNavigation() {
+        navigation.setSegment(currentRoute.getCurrentSegment());
+        navigation.update(toRadians(gpsSnapshot.getLatitude()), toRadians(gpsSnapshot.getLongitude()));
     }
 
     /**
-     * Calculates the heading error from the current route segement
+     * Calculates the heading error from the current route segement, using the last navigation update
      *
      * @return the heading error in degrees
      */
     private double calculateHeadingError() {
-        return PilotUtil.calculateInitialBearing(gps.getCoordinates(),
-                currentRoute.getNextWaypoint().getCoordinates()) - gps.getHeading();
-    }
-
-    private double calculateDistanceFromNextWaypoint() {
-        return PilotUtil.calculateDistance(gps.getCoordinates(), currentRoute.getNextWaypoint().getCoordinates());
+        return toDegrees(navigation.getBearingToNext()) - gpsSnapshot.getHeading();
     }
 
     /**
@@ -162,6 +253,29 @@ public class SimplePilot implements MessengerClientInterface {
 
     public void setCurrentRoute(RouteInterface newRoute) {
         this.currentRoute = newRoute;
+
+        // Indexed routes can be tracked by along-track progress rather than only by arriving at waypoints
+        if (newRoute instanceof IndexedRouteInterface) {
+            progressEngine = new RouteProgressEngine((IndexedRouteInterface) newRoute);
+        } else {
+            progressEngine = null;
+        }
+    }
+
+    /**
+     * Moves the current route to the segment closest to the current GPS position, for resuming a route after a manual
+     * override. Only routes implementing {@link IndexedRouteInterface} can be rejoined. This is called when the pilot
+     * starts.
+     * <p>
+     * The rejoin is only requested here. It is done by the next {@link #checkWaypointAdvance()}, so that it runs on
+     * the pilot loop's thread before the route's progress is next updated.
+     */
+    public void rejoinRoute() {
+        if (progressEngine == null) {
+            Logger.warn("Current route does not support rejoining");
+            return;
+        }
+        rejoinRequested = true;
     }
 
     public RouteInterface getCurrentRoute() {
@@ -178,6 +292,15 @@ public class SimplePilot implements MessengerClientInterface {
         return MessageInterface.MessageType.HELM;
     }
 
+    /**
+     * Provides the pilot loop's timing statistics, including overruns and jitter
+     *
+     * @return the {@link FixedRateTimer} pacing the pilot loop, or null if the pilot has not been started
+     */
+    public FixedRateTimer getLoopTimer() {
+        return worker == null ? null : worker.getTimer();
+    }
+
     public double[] getGPSCoordinates() {
         return gps.getCoordinates();
     }
@@ -211,11 +334,32 @@ public class SimplePilot implements MessengerClientInterface {
     }
 
     /**
+     * Advances the current route if the ASV has finished the current segment. Indexed routes are advanced by a
+     * {@link RouteProgressEngine}, which also recovers from overshooting a waypoint; other routes only advance when the
+     * ASV is within tolerance of the next waypoint. This reads the GPS once, and the rest of the loop uses the same
+     * reading. A rejoin requested by {@link #rejoinRoute()} is done first.
+     *
      * @return True if the current route is complete
      */
     public boolean checkWaypointAdvance() throws RouteEndException {
+        readGPS();
+        if (progressEngine != null) {
+            if (rejoinRequested) {
+                rejoinRequested = false;
+                int index = progressEngine.rejoin(toRadians(gpsSnapshot.getLatitude()),
+                        toRadians(gpsSnapshot.getLongitude()));
+                Logger.info("Rejoined route at segment " + index);
+            }
+            boolean routeComplete = progressEngine.update(toRadians(gpsSnapshot.getLatitude()),
+                    toRadians(gpsSnapshot.getLongitude()));
+            updateNavigation();
+            return routeComplete;
+        }
+
         boolean routeComplete = false;
-        boolean atWaypoint = calculateDistanceFromNextWaypoint() <= currentRoute.getNextWaypoint().getTolerance();
+        updateNavigation();
+        boolean atWaypoint = navigation.getDistanceToNext(EarthRadius.NMI)
+                <= navigation.getSegment().getEndWaypoint().getTolerance();
         // Check if we're currently at a waypoint
         if (atWaypoint) {
             // Decide what to do based on waypoint end behavior
@@ -229,6 +373,7 @@ public class SimplePilot implements MessengerClientInterface {
                     } else {
                         // Advance if the route isn't over
                         currentRoute.advanceWaypoint();
+                        updateNavigation();
                         routeComplete = false;
                     }
                     break;
@@ -247,11 +392,11 @@ public class SimplePilot implements MessengerClientInterface {
         private volatile boolean isRunning = true;
 
         private final SimplePilot pilot;
-        private final long period;
+        private final FixedRateTimer timer;
 
         private PilotWorker(SimplePilot pilot, long period) {
             this.pilot = pilot;
-            this.period = period;
+            this.timer = new FixedRateTimer(period, TimeUnit.MILLISECONDS, clock);
         }
 
         /**
@@ -260,14 +405,14 @@ public class SimplePilot implements MessengerClientInterface {
         @Override
         public void run() {
             Logger.info("Starting pilot worker");
-            pilotLoop:
+            timer.start();
             while (isRunning) {
                 try {
-                    // Advance the route and stop running if it's complete
+                    // Advance the route and stop running if it's complete. This also updates the navigation kernel
                     isRunning = !checkWaypointAdvance();
 
                     // Calculate the XTD and heading error
-                    double xtd = calculateCrossTrackDistance(EarthRadius.METERS);
+                    double xtd = navigation.getCrossTrackDistance(EarthRadius.METERS);
                     double headingError = calculateHeadingError();
 
                     double throttleOut = throttleController.calculateNextOutput();
@@ -283,7 +428,9 @@ public class SimplePilot implements MessengerClientInterface {
                             break;
                     }
 
-                    Logger.trace("Xtd:" + xtd + "Rudder PID out: " + rudderOut);
+                    if (Logger.isTraceEnabled()) {
+                        Logger.trace("Xtd:" + xtd + "Rudder PID out: " + rudderOut);
+                    }
 
                     // Now dispatch the new helm instructions
                     MessageInterface message = null;
@@ -293,21 +440,29 @@ public class SimplePilot implements MessengerClientInterface {
                         e.printStackTrace();
                     }
                     server.dispatch(message);
-                    try {
-                        sleep(period);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
                 } catch (Exception e) {
                     Logger.error(e);
                 }
+
+                // Wait for the next period, measured from when this iteration was due rather than when it finished
+                try {
+                    timer.awaitNextDeadline();
+                } catch (InterruptedException e) {
+                    Logger.warn("Pilot worker interrupted");
+                    isRunning = false;
+                }
             }
+            Logger.info("Pilot worker stopped: " + timer);
         }
 
         public boolean isRunning() {
             return isRunning;
         }
 
+        public FixedRateTimer getTimer() {
+            return timer;
+        }
+
         public void stop() {
             Logger.info("Stopping SimplePilot");
             isRunning = false;
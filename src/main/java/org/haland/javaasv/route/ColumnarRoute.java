@@ -0,0 +1,154 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+/**
+ * {@link IndexedRouteInterface} backed by {@link WaypointColumns}, storing each waypoint in 25 bytes of primitive
+ * arrays rather than as a separate object. Waypoints can be read by index without creating objects; the
+ * {@link WaypointInterface}s and {@link RouteSegment} of the current segment are created when the route moves to a new
+ * segment and reused until it moves again. {@link #getSegment(int)} creates a new segment for any other index, so code
+ * that visits many segments should read the waypoints by index instead.
+ */
+public class ColumnarRoute implements IndexedRouteInterface {
+    private final WaypointColumns waypoints;
+    private int currentIndex;
+
+    // Objects for the current segment, recreated only when the current index changes
+    private WaypointInterface previousWaypoint;
+    private WaypointInterface nextWaypoint;
+    private RouteSegment currentSegment;
+
+    /**
+     * Constructs a route from stored waypoints. The waypoints must not be modified afterwards.
+     *
+     * @param waypoints the waypoints of the route, at least two
+     */
+    public ColumnarRoute(WaypointColumns waypoints) {
+        if (waypoints.size() < 2) {
+            throw new IllegalArgumentException("A route needs at least two waypoints, found " + waypoints.size());
+        }
+        waypoints.trimToSize();
+        this.waypoints = waypoints;
+        moveTo(0);
+    }
+
+    /**
+     * Copy constructor. The copies share the same waypoints.
+     * @param route the route to copy
+     */
+    public ColumnarRoute(ColumnarRoute route) {
+        this.waypoints = route.waypoints;
+        moveTo(route.currentIndex);
+    }
+
+    private void moveTo(int index) {
+        // When advancing by one segment, the old end waypoint becomes the new start waypoint
+        boolean advancingOne = nextWaypoint != null && index == currentIndex + 1;
+        previousWaypoint = advancingOne ? nextWaypoint : waypoints.getWaypoint(index);
+        nextWaypoint = waypoints.getWaypoint(index + 1);
+        currentSegment = new RouteSegment(previousWaypoint, nextWaypoint);
+        currentIndex = index;
+    }
+
+    @Override
+    public double getLatitude(int index) {
+        return waypoints.getLatitude(index);
+    }
+
+    @Override
+    public double getLongitude(int index) {
+        return waypoints.getLongitude(index);
+    }
+
+    @Override
+    public double getTolerance(int index) {
+        return waypoints.getTolerance(index);
+    }
+
+    @Override
+    public WaypointInterface.WaypointBehavior getBehavior(int index) {
+        return waypoints.getBehavior(index);
+    }
+
+    /**
+     * @return the number of waypoints in the route
+     */
+    public int getRouteLength() {
+        return waypoints.size();
+    }
+
+    @Override
+    public WaypointInterface getPreviousWaypoint() {
+        return previousWaypoint;
+    }
+
+    @Override
+    public WaypointInterface getNextWaypoint() {
+        return nextWaypoint;
+    }
+
+    @Override
+    public RouteSegment getCurrentSegment() {
+        return currentSegment;
+    }
+
+    @Override
+    public RouteSegment getSegment(int index) {
+        if (index == currentIndex) {
+            return currentSegment;
+        }
+        if (index < 0 || index >= getSegmentCount()) {
+            throw new IndexOutOfBoundsException("No segment " + index + " in route of " + getSegmentCount());
+        }
+        return new RouteSegment(waypoints.getWaypoint(index), waypoints.getWaypoint(index + 1));
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return waypoints.size() - 1;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    @Override
+    public void setCurrentIndex(int index) {
+        if (index < 0 || index >= getSegmentCount()) {
+            throw new IndexOutOfBoundsException("No segment " + index + " in route of " + getSegmentCount());
+        }
+        if (index != currentIndex) {
+            moveTo(index);
+        }
+    }
+
+    @Override
+    public boolean isComplete() {
+        return currentIndex == getSegmentCount() - 1;
+    }
+
+    @Override
+    public void advanceWaypoint() throws RouteEndException {
+        if (isComplete()) {
+            throw new RouteEndException();
+        }
+        moveTo(currentIndex + 1);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+/**
+ * A {@link RouteInterface} whose segments can be accessed by index, allowing the current segment to be moved by more
+ * than one waypoint at a time
+ */
+public interface IndexedRouteInterface extends RouteInterface {
+    /**
+     * Returns the segment starting at the waypoint with the specified index
+     * @param index index of the segment's start waypoint
+     * @return the {@link RouteSegment}
+     */
+    RouteSegment getSegment(int index);
+
+    /**
+     * Returns the latitude of a waypoint without creating a {@link WaypointInterface}, so that segments other than
+     * the current one can be examined without allocating
+     * @param index index of the waypoint
+     * @return the latitude, in degrees
+     */
+    double getLatitude(int index);
+
+    /**
+     * @param index index of the waypoint
+     * @return the longitude of the waypoint, in degrees
+     */
+    double getLongitude(int index);
+
+    /**
+     * @param index index of the waypoint
+     * @return the tolerance of the waypoint, in nautical miles
+     */
+    double getTolerance(int index);
+
+    /**
+     * @param index index of the waypoint
+     * @return the behavior of the waypoint
+     */
+    WaypointInterface.WaypointBehavior getBehavior(int index);
+
+    /**
+     * @return the number of segments in the route
+     */
+    int getSegmentCount();
+
+    /**
+     * @return the index of the current segment
+     */
+    int getCurrentIndex();
+
+    /**
+     * Moves the route to a new segment
+     * @param index index of the new current segment
+     * @throws IndexOutOfBoundsException if there is no segment with that index
+     */
+    void setCurrentIndex(int index);
+}
@@ -0,0 +1,380 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.tinylog.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IndexedRouteInterface} that reads a binary route file (see {@link RouteBinaryFile}) a page of waypoints at a
+ * time, so routes of any length run in a fixed memory budget. Decoded pages are kept in a small least-recently-used
+ * cache, and the page after the current one is read in the background so the pilot rarely waits on the disk.
+ * <p>
+ * The file's checksum is verified when the route is opened. The route holds the file open until {@link #close()}.
+ */
+public class PagedRoute implements IndexedRouteInterface, Closeable {
+    /**
+     * Default number of waypoints per page
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+
+    /**
+     * Default number of pages to keep in memory
+     */
+    public static final int DEFAULT_CACHE_PAGES = 4;
+
+    // The current page and the one being prefetched must both fit
+    private static final int MIN_CACHE_PAGES = 2;
+
+    // How long close waits for a prefetch read to finish
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int waypointCount;
+    private final int pageSize;
+
+    // Guarded by itself, along with pendingPages
+    private final Map<Integer, Page> cache;
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private final ExecutorService prefetcher;
+
+    private long pageReads;
+    private int currentIndex;
+
+    // Objects for the current segment, recreated only when the current index changes
+    private WaypointInterface previousWaypoint;
+    private WaypointInterface nextWaypoint;
+    private RouteSegment currentSegment;
+
+    /**
+     * Opens a binary route file with the default page and cache sizes
+     *
+     * @param path the binary route file
+     * @throws RouteFormatException if the file is not a valid binary route or fails its checksum
+     * @throws IOException          if the file cannot be read
+     */
+    public PagedRoute(Path path) throws IOException {
+        this(path, DEFAULT_PAGE_SIZE, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * Opens a binary route file
+     *
+     * @param path       the binary route file
+     * @param pageSize   number of waypoints per page
+     * @param cachePages number of decoded pages to keep in memory, at least 2
+     * @throws RouteFormatException if the file is not a valid binary route or fails its checksum
+     * @throws IOException          if the file cannot be read
+     */
+    public PagedRoute(Path path, int pageSize, int cachePages) throws IOException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1, was " + pageSize);
+        }
+        if (cachePages < MIN_CACHE_PAGES) {
+            throw new IllegalArgumentException("Cache must hold at least " + MIN_CACHE_PAGES + " pages, was "
+                    + cachePages);
+        }
+        this.path = path;
+        this.pageSize = pageSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(RouteBinaryFile.HEADER_SIZE).order(RouteBinaryFile.BYTE_ORDER);
+            if (fileSize >= RouteBinaryFile.HEADER_SIZE) {
+                RouteBinaryFile.readFully(channel, header, 0);
+            }
+            waypointCount = RouteBinaryFile.readHeader(header, fileSize);
+            if (waypointCount < 2) {
+                throw new RouteFormatException("A route needs at least two waypoints, found " + waypointCount);
+            }
+            RouteBinaryFile.verifyChecksum(channel, fileSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        cache = new LinkedHashMap<>(cachePages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+                return size() > cachePages;
+            }
+        };
+        prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "route-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        moveTo(0);
+    }
+
+    /**
+     * A decoded run of consecutive waypoints
+     */
+    private static final class Page {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] tolerances;
+        private final WaypointInterface.WaypointBehavior[] behaviors;
+
+        private Page(int size) {
+            latitudes = new double[size];
+            longitudes = new double[size];
+            tolerances = new double[size];
+            behaviors = new WaypointInterface.WaypointBehavior[size];
+        }
+    }
+
+    private Page readPage(int pageNumber) throws IOException {
+        int first = pageNumber * pageSize;
+        int size = Math.min(pageSize, waypointCount - first);
+        ByteBuffer buffer = ByteBuffer.allocate(size * RouteBinaryFile.RECORD_SIZE).order(RouteBinaryFile.BYTE_ORDER);
+        RouteBinaryFile.readFully(channel, buffer,
+                RouteBinaryFile.HEADER_SIZE + (long) first * RouteBinaryFile.RECORD_SIZE);
+        buffer.flip();
+
+        Page page = new Page(size);
+        for (int i = 0; i < size; i++) {
+            page.latitudes[i] = buffer.getDouble();
+            page.longitudes[i] = buffer.getDouble();
+            page.tolerances[i] = buffer.getDouble();
+            page.behaviors[i] = RouteBinaryFile.behavior(buffer.get());
+        }
+        synchronized (cache) {
+            pageReads++;
+        }
+        return page;
+    }
+
+    private Page getPage(int pageNumber) {
+        synchronized (cache) {
+            Page page = cache.get(pageNumber);
+            if (page != null) {
+                return page;
+            }
+        }
+
+        // Not cached, so read it on this thread even if a prefetch is under way
+        try {
+            Page page = readPage(pageNumber);
+            synchronized (cache) {
+                cache.put(pageNumber, page);
+            }
+            return page;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read page " + pageNumber + " of route " + path, e);
+        }
+    }
+
+    private void prefetch(int pageNumber) {
+        if ((long) pageNumber * pageSize >= waypointCount) {
+            return;
+        }
+        synchronized (cache) {
+            if (cache.containsKey(pageNumber) || !pendingPages.add(pageNumber)) {
+                return;
+            }
+        }
+
+        try {
+            prefetcher.execute(() -> {
+                try {
+                    Page page = readPage(pageNumber);
+                    synchronized (cache) {
+                        cache.put(pageNumber, page);
+                    }
+                } catch (IOException e) {
+                    Logger.warn(e, "Could not prefetch page " + pageNumber + " of route " + path);
+                } finally {
+                    synchronized (cache) {
+                        pendingPages.remove(pageNumber);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The route has been closed
+            synchronized (cache) {
+                pendingPages.remove(pageNumber);
+            }
+        }
+    }
+
+    private WaypointInterface createWaypoint(int index) {
+        Page page = getPage(index / pageSize);
+        int offset = index % pageSize;
+        return new Waypoint(page.latitudes[offset], page.longitudes[offset], page.tolerances[offset],
+                page.behaviors[offset]);
+    }
+
+    private Page pageOf(int index) {
+        if (index < 0 || index >= waypointCount) {
+            throw new IndexOutOfBoundsException("No waypoint " + index + " in route of " + waypointCount);
+        }
+        return getPage(index / pageSize);
+    }
+
+    @Override
+    public double getLatitude(int index) {
+        return pageOf(index).latitudes[index % pageSize];
+    }
+
+    @Override
+    public double getLongitude(int index) {
+        return pageOf(index).longitudes[index % pageSize];
+    }
+
+    @Override
+    public double getTolerance(int index) {
+        return pageOf(index).tolerances[index % pageSize];
+    }
+
+    @Override
+    public WaypointInterface.WaypointBehavior getBehavior(int index) {
+        return pageOf(index).behaviors[index % pageSize];
+    }
+
+    private void moveTo(int index) {
+        // When advancing by one segment, the old end waypoint becomes the new start waypoint
+        boolean advancingOne = nextWaypoint != null && index == currentIndex + 1;
+        previousWaypoint = advancingOne ? nextWaypoint : createWaypoint(index);
+        nextWaypoint = createWaypoint(index + 1);
+        currentSegment = new RouteSegment(previousWaypoint, nextWaypoint);
+        currentIndex = index;
+
+        // Read ahead of the segment's end waypoint
+        prefetch((index + 1) / pageSize + 1);
+    }
+
+    /**
+     * @return the number of waypoints in the route
+     */
+    public int getRouteLength() {
+        return waypointCount;
+    }
+
+    /**
+     * @return the number of waypoints per page
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the number of pages read from disk so far, including prefetched pages
+     */
+    public long getPageReadCount() {
+        synchronized (cache) {
+            return pageReads;
+        }
+    }
+
+    @Override
+    public WaypointInterface getPreviousWaypoint() {
+        return previousWaypoint;
+    }
+
+    @Override
+    public WaypointInterface getNextWaypoint() {
+        return nextWaypoint;
+    }
+
+    @Override
+    public RouteSegment getCurrentSegment() {
+        return currentSegment;
+    }
+
+    @Override
+    public RouteSegment getSegment(int index) {
+        if (index == currentIndex) {
+            return currentSegment;
+        }
+        if (index < 0 || index >= getSegmentCount()) {
+            throw new IndexOutOfBoundsException("No segment " + index + " in route of " + getSegmentCount());
+        }
+        return new RouteSegment(createWaypoint(index), createWaypoint(index + 1));
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return waypointCount - 1;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    @Override
+    public void setCurrentIndex(int index) {
+        if (index < 0 || index >= getSegmentCount()) {
+            throw new IndexOutOfBoundsException("No segment " + index + " in route of " + getSegmentCount());
+        }
+        if (index != currentIndex) {
+            moveTo(index);
+        }
+    }
+
+    @Override
+    public boolean isComplete() {
+        return currentIndex == getSegmentCount() - 1;
+    }
+
+    @Override
+    public void advanceWaypoint() throws RouteEndException {
+        if (isComplete()) {
+            throw new RouteEndException();
+        }
+        moveTo(currentIndex + 1);
+    }
+
+    /**
+     * Stops prefetching and closes the route file
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        // Interrupting a read would close the channel under the prefetch thread, so let it finish
+        prefetcher.shutdown();
+        try {
+            if (!prefetcher.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                Logger.warn("Prefetch of route " + path + " did not finish before closing");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
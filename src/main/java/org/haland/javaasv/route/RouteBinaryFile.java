@@ -0,0 +1,226 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes routes in a compact binary format, which loads much faster than parsing the comma-separated format.
+ * <p>
+ * All values are little-endian. A file is laid out as:
+ * <pre>
+ * offset  size  field
+ * 0       4     magic "ASVR"
+ * 4       2     format version
+ * 6       2     reserved, 0
+ * 8       4     waypoint count
+ * 12      25n   waypoint records: latitude, longitude and tolerance as doubles, then the behavior ordinal as a byte
+ * 12+25n  4     CRC-32 of every preceding byte
+ * </pre>
+ */
+public final class RouteBinaryFile {
+    static final byte[] MAGIC = "ASVR".getBytes(StandardCharsets.US_ASCII);
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int RECORD_SIZE = 3 * Double.BYTES + 1;
+    static final int CHECKSUM_SIZE = Integer.BYTES;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int COUNT_OFFSET = 8;
+    private static final int WRITE_BUFFER_RECORDS = 4096;
+    private static final WaypointInterface.WaypointBehavior[] BEHAVIORS = WaypointInterface.WaypointBehavior.values();
+
+    private RouteBinaryFile() {
+        throw new AssertionError("utility class");
+    }
+
+    /**
+     * Writes waypoints to a binary route file, replacing any existing file
+     *
+     * @param waypoints the waypoints to write
+     * @param path      the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(WaypointColumns waypoints, Path path) throws IOException {
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + WRITE_BUFFER_RECORDS * RECORD_SIZE).order(BYTE_ORDER);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.put(MAGIC).putShort(VERSION).putShort((short) 0).putInt(waypoints.size());
+            for (int i = 0; i < waypoints.size(); i++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    writeBuffer(channel, buffer, checksum);
+                }
+                buffer.putDouble(waypoints.getLatitude(i))
+                        .putDouble(waypoints.getLongitude(i))
+                        .putDouble(waypoints.getTolerance(i))
+                        .put((byte) waypoints.getBehavior(i).ordinal());
+            }
+            writeBuffer(channel, buffer, checksum);
+
+            buffer.putInt((int) checksum.getValue()).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static void writeBuffer(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads every waypoint in a binary route file
+     *
+     * @param path the file to read
+     * @return the waypoints in the file
+     * @throws RouteFormatException if the file is not a valid binary route or fails its checksum
+     * @throws IOException          if the file cannot be read
+     */
+    public static WaypointColumns read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RouteFormatException("Route file " + path + " is larger than 2 GB");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(BYTE_ORDER);
+            int count = readHeader(buffer, channel.size());
+            verifyChecksum(buffer);
+
+            WaypointColumns waypoints = new WaypointColumns(count);
+            for (int i = 0; i < count; i++) {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                waypoints.add(buffer.getDouble(offset), buffer.getDouble(offset + Double.BYTES),
+                        buffer.getDouble(offset + 2 * Double.BYTES), behavior(buffer.get(offset + 3 * Double.BYTES)));
+            }
+            return waypoints;
+        }
+    }
+
+    /**
+     * Validates the header of a binary route file
+     *
+     * @param buffer   buffer holding at least the header, in {@link #BYTE_ORDER}
+     * @param fileSize size of the whole file
+     * @return the number of waypoints in the file
+     * @throws RouteFormatException if the header is invalid or does not match the file size
+     */
+    static int readHeader(ByteBuffer buffer, long fileSize) throws RouteFormatException {
+        if (fileSize < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new RouteFormatException("Route file is too short to be a binary route");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new RouteFormatException("Route file is not a binary route");
+            }
+        }
+        short version = buffer.getShort(MAGIC.length);
+        if (version != VERSION) {
+            throw new RouteFormatException("Unsupported binary route version " + version);
+        }
+        int count = buffer.getInt(COUNT_OFFSET);
+        if (count < 0 || fileSize != HEADER_SIZE + (long) count * RECORD_SIZE + CHECKSUM_SIZE) {
+            throw new RouteFormatException("Binary route of " + count + " waypoints has the wrong size " + fileSize);
+        }
+        return count;
+    }
+
+    /**
+     * Checks the CRC-32 at the end of a whole binary route file held in a buffer
+     *
+     * @throws RouteFormatException if the checksum does not match
+     */
+    static void verifyChecksum(ByteBuffer buffer) throws RouteFormatException {
+        int checksumOffset = buffer.limit() - CHECKSUM_SIZE;
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().position(0).limit(checksumOffset));
+        if ((int) checksum.getValue() != buffer.getInt(checksumOffset)) {
+            throw new RouteFormatException("Binary route checksum does not match");
+        }
+    }
+
+    /**
+     * Checks the CRC-32 at the end of a binary route file, reading it in chunks so the file need not fit in memory
+     *
+     * @param channel  channel open on the file
+     * @param fileSize size of the file
+     * @throws RouteFormatException if the checksum does not match
+     * @throws IOException          if the file cannot be read
+     */
+    static void verifyChecksum(FileChannel channel, long fileSize) throws IOException {
+        long checksumOffset = fileSize - CHECKSUM_SIZE;
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + WRITE_BUFFER_RECORDS * RECORD_SIZE).order(BYTE_ORDER);
+
+        long position = 0;
+        while (position < checksumOffset) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), checksumOffset - position));
+            position += readFully(channel, buffer, position);
+            checksum.update(buffer.flip());
+        }
+
+        buffer.clear().limit(CHECKSUM_SIZE);
+        readFully(channel, buffer, checksumOffset);
+        if ((int) checksum.getValue() != buffer.getInt(0)) {
+            throw new RouteFormatException("Binary route checksum does not match");
+        }
+    }
+
+    /**
+     * Fills a buffer from a position in a file
+     *
+     * @return the number of bytes read
+     * @throws RouteFormatException if the file ends first
+     */
+    static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                throw new RouteFormatException("Binary route ended unexpectedly");
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Decodes a behavior ordinal from a waypoint record
+     *
+     * @throws RouteFormatException if the ordinal is not a known behavior
+     */
+    static WaypointInterface.WaypointBehavior behavior(byte ordinal) throws RouteFormatException {
+        if (ordinal < 0 || ordinal >= BEHAVIORS.length) {
+            throw new RouteFormatException("Unknown waypoint behavior " + ordinal);
+        }
+        return BEHAVIORS[ordinal];
+    }
+}
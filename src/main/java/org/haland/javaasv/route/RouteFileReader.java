@@ -0,0 +1,267 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads comma-separated route files of the form <code>latitude, longitude, tolerance, BEHAVIOR</code> into
+ * {@link WaypointColumns}. The file is memory-mapped and decoded byte by byte, so no strings are created for
+ * well-formed lines. Blank lines are skipped.
+ */
+public final class RouteFileReader {
+    private static final int VALUES_PER_LINE = 4;
+
+    private static final double MAX_LATITUDE = 90;
+    private static final double MAX_LONGITUDE = 180;
+
+    // Used to size the columns before parsing
+    private static final int ESTIMATED_LINE_LENGTH = 40;
+
+    // Mantissas up to 2^53 and powers of ten up to 10^22 are exact doubles, so dividing them rounds correctly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_SIGNIFICANT_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    private static final WaypointInterface.WaypointBehavior[] BEHAVIORS = WaypointInterface.WaypointBehavior.values();
+    private static final byte[][] BEHAVIOR_NAMES = new byte[BEHAVIORS.length][];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+        for (int i = 0; i < BEHAVIORS.length; i++) {
+            BEHAVIOR_NAMES[i] = BEHAVIORS[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int[] separators = new int[VALUES_PER_LINE - 1];
+    private int lineNumber;
+
+    private RouteFileReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads a route file
+     *
+     * @param path the route file
+     * @return the waypoints in the file
+     * @throws IOException         if the file cannot be read
+     * @throws RouteParseException if a line of the file is not a valid waypoint
+     */
+    public static WaypointColumns read(Path path) throws IOException, RouteParseException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Route file " + path + " is larger than 2 GB");
+            }
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Parses route file contents between the buffer's position and limit
+     *
+     * @param buffer the route file contents
+     * @return the waypoints in the buffer
+     * @throws RouteParseException if a line is not a valid waypoint
+     */
+    static WaypointColumns parse(ByteBuffer buffer) throws RouteParseException {
+        return new RouteFileReader(buffer).parse();
+    }
+
+    private WaypointColumns parse() throws RouteParseException {
+        int limit = buffer.limit();
+        WaypointColumns columns = new WaypointColumns(buffer.remaining() / ESTIMATED_LINE_LENGTH + 1);
+
+        int position = buffer.position();
+        while (position < limit) {
+            lineNumber++;
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int end = lineEnd;
+            if (end > position && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+
+            if (skipWhitespace(position, end) < end) {
+                parseLine(position, end, columns);
+            }
+            position = lineEnd + 1;
+        }
+
+        columns.trimToSize();
+        return columns;
+    }
+
+    private void parseLine(int start, int end, WaypointColumns columns) throws RouteParseException {
+        // Find the value separators
+        int found = 0;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == ',') {
+                if (found == separators.length) {
+                    throw error("expected " + VALUES_PER_LINE + " values but found more");
+                }
+                separators[found++] = i;
+            }
+        }
+        if (found < separators.length) {
+            throw error("expected " + VALUES_PER_LINE + " values but found " + (found + 1));
+        }
+
+        double latitude = parseNumber(start, separators[0], "latitude");
+        double longitude = parseNumber(separators[0] + 1, separators[1], "longitude");
+        double tolerance = parseNumber(separators[1] + 1, separators[2], "tolerance");
+        checkRange(latitude, MAX_LATITUDE, "latitude");
+        checkRange(longitude, MAX_LONGITUDE, "longitude");
+        if (!Double.isFinite(tolerance)) {
+            throw error("invalid tolerance " + tolerance);
+        }
+        byte behavior = parseBehavior(separators[2] + 1, end);
+        columns.add(latitude, longitude, tolerance, behavior);
+    }
+
+    private double parseNumber(int start, int end, String name) throws RouteParseException {
+        start = skipWhitespace(start, end);
+        end = trimWhitespace(start, end);
+        if (start == end) {
+            throw error("missing " + name);
+        }
+
+        int i = start;
+        boolean negative = false;
+        if (buffer.get(i) == '-' || buffer.get(i) == '+') {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean anyDigits = false;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                anyDigits = true;
+                if (mantissa != 0 || b != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits > MAX_SIGNIFICANT_DIGITS) {
+                    return parseNumberSlowly(start, end, name);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                // Exponents and anything unusual are left to Double.parseDouble
+                return parseNumberSlowly(start, end, name);
+            }
+        }
+
+        if (!anyDigits) {
+            throw error("invalid " + name + " '" + text(start, end) + "'");
+        }
+        if (mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            return parseNumberSlowly(start, end, name);
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private double parseNumberSlowly(int start, int end, String name) throws RouteParseException {
+        String text = text(start, end);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw error("invalid " + name + " '" + text + "'");
+        }
+    }
+
+    /**
+     * Rejects values that are not finite or are outside <code>[-max, max]</code>. NaN fails both comparisons.
+     */
+    private void checkRange(double value, double max, String name) throws RouteParseException {
+        if (!(value >= -max && value <= max)) {
+            throw error(name + " " + value + " is outside [" + -max + ", " + max + "]");
+        }
+    }
+
+    private byte parseBehavior(int start, int end) throws RouteParseException {
+        start = skipWhitespace(start, end);
+        end = trimWhitespace(start, end);
+
+        behaviors:
+        for (int behavior = 0; behavior < BEHAVIOR_NAMES.length; behavior++) {
+            byte[] name = BEHAVIOR_NAMES[behavior];
+            if (name.length != end - start) {
+                continue;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (buffer.get(start + i) != name[i]) {
+                    continue behaviors;
+                }
+            }
+            return (byte) behavior;
+        }
+        throw error("unknown waypoint behavior '" + text(start, end) + "'");
+    }
+
+    private int skipWhitespace(int start, int end) {
+        while (start < end && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimWhitespace(int start, int end) {
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private String text(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private RouteParseException error(String message) {
+        return new RouteParseException(message, lineNumber);
+    }
+}
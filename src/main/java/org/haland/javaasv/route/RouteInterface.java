@@ -28,4 +28,13 @@ public interface RouteInterface {
      */
     void advanceWaypoint() throws RouteEndException;
 
+    /**
+     * Provides the geometry of the current straight-line segment. Implementations should override this to return a
+     * cached segment, since the default builds a new {@link RouteSegment} on every call.
+     * @return a {@link RouteSegment} from {@link #getPreviousWaypoint()} to {@link #getNextWaypoint()}
+     */
+    default RouteSegment getCurrentSegment() {
+        return new RouteSegment(getPreviousWaypoint(), getNextWaypoint());
+    }
+
 }
@@ -21,18 +21,16 @@ package org.haland.javaasv.route;
 import org.haland.javaasv.config.AllConfig;
 import org.haland.javaasv.config.RouteConfig;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Arrays;
-import java.util.Scanner;
+import java.io.IOException;
 import org.tinylog.Logger;
 
 /**
- * Parses {@link RouteInterface}s from a {@link RouteConfig} instance
+ * Parses {@link RouteInterface}s from a {@link RouteConfig} instance. A {@link PagedRoute} keeps its file open, so the
+ * parser must be closed once the route is no longer needed.
  */
-public class RouteParser {
-    private static final String FILE_DELIMITER = ",";
-
+public class RouteParser implements Closeable {
     private RouteConfig config;
     private RouteInterface route;
 
@@ -48,39 +46,123 @@ public class RouteParser {
                 break;
             case TWO_POINT:
                 route = createTwoPointRoute();
+                break;
+            case BINARY:
+                route = createBinaryRoute();
+                break;
+            case PAGED:
+                route = createPagedRoute();
         }
     }
 
     /**
      * Parses a route from a file input
-     * @return a {@link RouteInterface} representing the route
+     * @return a {@link ColumnarRoute} representing the route
      */
     private RouteInterface createFileRoute() {
+        // Get the filename from the config
+        String fileDir = config.getRouteFileDir();
+        String filename = config.getRouteFileName();
+
+        try {
+            return loadColumnarRoute(new File(fileDir + filename));
+        } catch (IOException | RouteParseException e) {
+            throw new IllegalStateException("Could not load route file " + fileDir + filename, e);
+        }
+    }
+
+    /**
+     * Parses a route from a comma-separated route file into a {@link SegmentedRoute}. This creates a waypoint and a
+     * segment for every line, so it is only suited to short routes; configured route files are loaded with
+     * {@link #loadColumnarRoute(File)}.
+     * @param file the route file
+     * @return a {@link SegmentedRoute} containing the waypoints in the file
+     * @throws IOException         if the file cannot be read
+     * @throws RouteParseException if a line of the file is not a valid waypoint
+     */
+    public static SegmentedRoute loadFileRoute(File file) throws IOException, RouteParseException {
+        WaypointColumns waypoints = RouteFileReader.read(file.toPath());
+
         SegmentedRoute route = new SegmentedRoute();
+        for (int i = 0; i < waypoints.size(); i++) {
+            route.addWaypoint(waypoints.getWaypoint(i));
+        }
+        return route;
+    }
 
-        // Get the filename from the config
+    /**
+     * Parses a route from a comma-separated route file into a {@link ColumnarRoute}, which stores the waypoints in
+     * primitive arrays and suits routes with very many waypoints
+     * @param file the route file
+     * @return a {@link ColumnarRoute} containing the waypoints in the file
+     * @throws IOException         if the file cannot be read
+     * @throws RouteParseException if a line of the file is not a valid waypoint
+     */
+    public static ColumnarRoute loadColumnarRoute(File file) throws IOException, RouteParseException {
+        return new ColumnarRoute(RouteFileReader.read(file.toPath()));
+    }
+
+    /**
+     * Loads a route from a binary route file
+     * @return a {@link ColumnarRoute} representing the route
+     */
+    private RouteInterface createBinaryRoute() {
         String fileDir = config.getRouteFileDir();
         String filename = config.getRouteFileName();
 
-        // Try to open the route file
-        try (Scanner scanner = new Scanner(new File(fileDir + filename));) {
-            // Iterate over the lines in the route file
-            while (scanner.hasNextLine()) {
-                // Split the line along delimiters
-                String[] values = scanner.nextLine().strip().split(FILE_DELIMITER);
+        try {
+            return loadBinaryRoute(new File(fileDir + filename));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load binary route file " + fileDir + filename, e);
+        }
+    }
 
-                // Strip whitespace
-                Arrays.parallelSetAll(values, (i) -> values[i].strip());
+    /**
+     * Opens a binary route file to be read a page at a time
+     * @return a {@link PagedRoute} representing the route
+     */
+    private RouteInterface createPagedRoute() {
+        String fileDir = config.getRouteFileDir();
+        String filename = config.getRouteFileName();
 
-                // Add a waypoint to the route for each line
-                route.addWaypoint(new Waypoint(Double.parseDouble(values[0]),Double.parseDouble(values[1]),
-                        Double.parseDouble(values[2]), WaypointInterface.WaypointBehavior.valueOf(values[3])));
-            }
-        } catch (FileNotFoundException e) {
-            Logger.error(e);
+        try {
+            return new PagedRoute(new File(fileDir + filename).toPath(), config.getPagedRoutePageSize(),
+                    config.getPagedRouteCachePages());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open paged route file " + fileDir + filename, e);
         }
+    }
 
-        return route;
+    /**
+     * Loads a route from a file in the format written by {@link RouteBinaryFile}
+     * @param file the binary route file
+     * @return a {@link ColumnarRoute} containing the waypoints in the file
+     * @throws RouteFormatException if the file is not a valid binary route or fails its checksum
+     * @throws IOException          if the file cannot be read
+     */
+    public static ColumnarRoute loadBinaryRoute(File file) throws IOException {
+        return new ColumnarRoute(RouteBinaryFile.read(file.toPath()));
+    }
+
+    /**
+     * Writes waypoints to a binary route file
+     * @param waypoints the waypoints to write
+     * @param file      the binary route file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeBinaryRoute(WaypointColumns waypoints, File file) throws IOException {
+        RouteBinaryFile.write(waypoints, file.toPath());
+    }
+
+    /**
+     * Converts a comma-separated route file to a binary route file
+     * @param routeFile  the comma-separated route file to read
+     * @param binaryFile the binary route file to write
+     * @throws IOException         if either file cannot be accessed
+     * @throws RouteParseException if a line of the route file is not a valid waypoint
+     */
+    public static void convertFileRoute(File routeFile, File binaryFile) throws IOException, RouteParseException {
+        writeBinaryRoute(RouteFileReader.read(routeFile.toPath()), binaryFile);
     }
 
     /**
@@ -89,17 +171,26 @@ public class RouteParser {
      * @return a {@link RouteInterface} representing the one-segment route
      */
     private RouteInterface createTwoPointRoute() {
+        WaypointInterface start = new Waypoint(config.getTwoPointRouteStart(), config.getTwoPointRouteTolerance(),
+                WaypointInterface.WaypointBehavior.NEXT_WAYPOINT);
+        WaypointInterface end = new Waypoint(config.getTwoPointRouteEnd(), config.getTwoPointRouteTolerance(),
+                WaypointInterface.WaypointBehavior.NEXT_WAYPOINT);
+        RouteSegment segment = new RouteSegment(start, end);
+
         return new RouteInterface() {
             @Override
             public WaypointInterface getPreviousWaypoint() {
-                return new Waypoint(config.getTwoPointRouteStart(), config.getTwoPointRouteTolerance(),
-                        WaypointInterface.WaypointBehavior.NEXT_WAYPOINT);
+                return start;
             }
 
             @Override
             public WaypointInterface getNextWaypoint() {
-                return new Waypoint(config.getTwoPointRouteEnd(), config.getTwoPointRouteTolerance(),
-                        WaypointInterface.WaypointBehavior.NEXT_WAYPOINT);
+                return end;
+            }
+
+            @Override
+            public RouteSegment getCurrentSegment() {
+                return segment;
             }
 
             @Override
@@ -121,4 +212,16 @@ public class RouteParser {
     public RouteInterface getRoute() {
         return route;
     }
+
+    /**
+     * Releases the parsed route, closing its file if it is read from one as it is followed
+     *
+     * @throws IOException if the route file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (route instanceof Closeable) {
+            ((Closeable) route).close();
+        }
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.util.EarthRadius;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+/**
+ * Tracks progress along an {@link IndexedRouteInterface} by projecting the ASV onto the current segment.
+ * <p>
+ * A segment is finished once the ASV is within tolerance of its end waypoint or has passed abeam of it, so a waypoint
+ * that is overshot is still left behind. Several segments can be finished in one update, but never more than the
+ * look-ahead window, which bounds the work per update. Progress stops at the end of the route and at
+ * {@link WaypointInterface.WaypointBehavior#LOITER} waypoints.
+ */
+public class RouteProgressEngine {
+    /**
+     * Default maximum number of segments to advance in one update
+     */
+    public static final int DEFAULT_LOOK_AHEAD = 16;
+
+    private final IndexedRouteInterface route;
+    private final int lookAhead;
+
+    // Reset to each segment examined other than the current one, so looking ahead does not allocate
+    private final SegmentGeometry lookAheadGeometry = new SegmentGeometry();
+
+    // Built on the first rejoin, since most routes are followed from the start. Never built for a PagedRoute.
+    private RouteSegmentIndex segmentIndex;
+
+    /**
+     * Constructs a new engine with the default look-ahead window
+     * @param route the route to track progress along
+     */
+    public RouteProgressEngine(IndexedRouteInterface route) {
+        this(route, DEFAULT_LOOK_AHEAD);
+    }
+
+    /**
+     * Constructs a new engine
+     * @param route     the route to track progress along
+     * @param lookAhead the maximum number of segments to advance in one update
+     */
+    public RouteProgressEngine(IndexedRouteInterface route, int lookAhead) {
+        if (lookAhead < 1) {
+            throw new IllegalArgumentException("Look-ahead must be at least 1, was " + lookAhead);
+        }
+        this.route = route;
+        this.lookAhead = lookAhead;
+    }
+
+    /**
+     * Advances the route past every finished segment in the look-ahead window
+     *
+     * @param lat latitude of the ASV, in radians
+     * @param lon longitude of the ASV, in radians
+     * @return <code>true</code> if the ASV has finished the last segment it is allowed to reach, either the end of the
+     * route or a segment ending in a loiter waypoint
+     */
+    public boolean update(double lat, double lon) {
+        double cosLat = cos(lat);
+        double x = cosLat * cos(lon);
+        double y = cosLat * sin(lon);
+        double z = sin(lat);
+
+        int index = route.getCurrentIndex();
+        int lastIndex = route.getSegmentCount() - 1;
+        int limit = Math.min(lastIndex, index + lookAhead);
+
+        boolean finished = isFinished(index, x, y, z);
+        while (finished && index < limit && canLeave(index)) {
+            index++;
+            finished = isFinished(index, x, y, z);
+        }
+
+        if (index != route.getCurrentIndex()) {
+            route.setCurrentIndex(index);
+        }
+        return finished && (index == lastIndex || !canLeave(index));
+    }
+
+    /**
+     * Moves the route to the segment closest to the ASV, for example when starting part way along a route or resuming
+     * after a manual override. Unlike {@link #update(double, double)}, this may move the route backwards.
+     * <p>
+     * Most routes are searched with a {@link RouteSegmentIndex}, built on the first rejoin. Building one reads every
+     * waypoint, which would undo the fixed memory and disk budget of a {@link PagedRoute}, so a paged route is only
+     * searched from the page before the current segment's page to the page after it.
+     * <p>
+     * This shares working state with {@link #update(double, double)}, so both must be called from the same thread.
+     *
+     * @param lat latitude of the ASV, in radians
+     * @param lon longitude of the ASV, in radians
+     * @return the index of the new current segment
+     */
+    public int rejoin(double lat, double lon) {
+        int index;
+        if (route instanceof PagedRoute) {
+            index = nearestNearbySegment((PagedRoute) route, lat, lon);
+        } else {
+            if (segmentIndex == null) {
+                segmentIndex = new RouteSegmentIndex(route);
+            }
+            index = segmentIndex.nearestSegment(lat, lon);
+        }
+        route.setCurrentIndex(index);
+        return index;
+    }
+
+    /**
+     * Finds the closest segment within a page of the current segment's page
+     *
+     * @return the index of the closest segment. When several are equally close, the one with the lowest index.
+     */
+    private int nearestNearbySegment(PagedRoute pagedRoute, double lat, double lon) {
+        double cosLat = cos(lat);
+        double x = cosLat * cos(lon);
+        double y = cosLat * sin(lon);
+        double z = sin(lat);
+
+        int pageSize = pagedRoute.getPageSize();
+        int page = pagedRoute.getCurrentIndex() / pageSize;
+        int first = Math.max(0, (page - 1) * pageSize);
+        int last = (int) Math.min(pagedRoute.getSegmentCount() - 1, (page + 2L) * pageSize - 1);
+
+        int best = first;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = first; i <= last; i++) {
+            double distance = lookAheadGeometry.set(pagedRoute, i).angularDistanceTo(x, y, z);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return <code>true</code> if the ASV is within tolerance of the segment's end waypoint or abeam of it
+     */
+    private boolean isFinished(int index, double x, double y, double z) {
+        SegmentGeometry segment = (index == route.getCurrentIndex())
+                ? route.getCurrentSegment().getGeometry() : lookAheadGeometry.set(route, index);
+        double tolerance = route.getTolerance(index + 1) / EarthRadius.NMI.getValue();
+        return segment.alongTrackAngle(x, y, z) >= segment.getAngularLength()
+                || segment.angularDistanceToEnd(x, y, z) <= tolerance;
+    }
+
+    private boolean canLeave(int index) {
+        return route.getBehavior(index + 1) == WaypointInterface.WaypointBehavior.NEXT_WAYPOINT;
+    }
+
+    /**
+     * @return the route being tracked
+     */
+    public IndexedRouteInterface getRoute() {
+        return route;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.util.PilotUtil;
+
+import static java.lang.Math.*;
+
+/**
+ * Immutable great circle segment between two waypoints, with the geometry the pilot needs every loop precomputed.
+ * <p>
+ * Points are represented as unit vectors in an earth-centered frame with z towards the north pole. Given the unit
+ * vector p of a position, the angular cross-track distance is <code>asin(normal &middot; p)</code> and the angular
+ * along-track distance is <code>atan2(tangent &middot; p, start &middot; p)</code>, so segment geometry costs a few
+ * multiply-adds per position instead of repeated trig.
+ */
+public final class RouteSegment {
+    private final WaypointInterface startWaypoint;
+    private final WaypointInterface endWaypoint;
+
+    // Never reset after construction, so the segment stays immutable
+    private final SegmentGeometry geometry = new SegmentGeometry();
+    private final double bearing;
+
+    /**
+     * Constructs a segment between two waypoints
+     *
+     * @param startWaypoint the waypoint the segment starts at
+     * @param endWaypoint   the waypoint the segment ends at
+     */
+    public RouteSegment(WaypointInterface startWaypoint, WaypointInterface endWaypoint) {
+        this.startWaypoint = startWaypoint;
+        this.endWaypoint = endWaypoint;
+
+        double startLat = toRadians(startWaypoint.getLatitude());
+        double startLong = toRadians(startWaypoint.getLongitude());
+        double endLat = toRadians(endWaypoint.getLatitude());
+        double endLong = toRadians(endWaypoint.getLongitude());
+
+        geometry.set(startLat, startLong, endLat, endLong);
+        bearing = PilotUtil.calculateInitialBearingRadians(startLat, startLong, endLat, endLong);
+    }
+
+    /**
+     * Calculates the angular cross-track distance of a position from the segment's great circle
+     *
+     * @param x x component of the position's unit vector
+     * @param y y component of the position's unit vector
+     * @param z z component of the position's unit vector
+     * @return the cross-track distance in radians, positive when right of the path
+     */
+    public double crossTrackAngle(double x, double y, double z) {
+        return geometry.crossTrackAngle(x, y, z);
+    }
+
+    /**
+     * Calculates the angular distance along the segment's great circle from the start waypoint to the point abeam a
+     * position
+     *
+     * @param x x component of the position's unit vector
+     * @param y y component of the position's unit vector
+     * @param z z component of the position's unit vector
+     * @return the along-track distance in radians, negative when the position is behind the start waypoint
+     */
+    public double alongTrackAngle(double x, double y, double z) {
+        return geometry.alongTrackAngle(x, y, z);
+    }
+
+    /**
+     * Calculates the angular distance from a position to the end waypoint
+     *
+     * @param x x component of the position's unit vector
+     * @param y y component of the position's unit vector
+     * @param z z component of the position's unit vector
+     * @return the distance in radians
+     */
+    public double angularDistanceToEnd(double x, double y, double z) {
+        return geometry.angularDistanceToEnd(x, y, z);
+    }
+
+    /**
+     * Calculates the angular distance from a position to the start waypoint
+     *
+     * @param x x component of the position's unit vector
+     * @param y y component of the position's unit vector
+     * @param z z component of the position's unit vector
+     * @return the distance in radians
+     */
+    public double angularDistanceToStart(double x, double y, double z) {
+        return geometry.angularDistanceToStart(x, y, z);
+    }
+
+    /**
+     * Calculates the angular distance from a position to the closest point on the segment
+     *
+     * @param x x component of the position's unit vector
+     * @param y y component of the position's unit vector
+     * @param z z component of the position's unit vector
+     * @return the distance in radians
+     */
+    public double angularDistanceTo(double x, double y, double z) {
+        return geometry.angularDistanceTo(x, y, z);
+    }
+
+    /**
+     * @return the waypoint the segment starts at
+     */
+    public WaypointInterface getStartWaypoint() {
+        return startWaypoint;
+    }
+
+    /**
+     * @return the waypoint the segment ends at
+     */
+    public WaypointInterface getEndWaypoint() {
+        return endWaypoint;
+    }
+
+    /**
+     * @return the initial bearing of the segment, in radians between 0 and 2&pi;
+     */
+    public double getBearing() {
+        return bearing;
+    }
+
+    /**
+     * @return the length of the segment, in radians
+     */
+    public double getAngularLength() {
+        return geometry.getAngularLength();
+    }
+
+    /**
+     * @return <code>true</code> if the start and end waypoints coincide
+     */
+    public boolean isDegenerate() {
+        return geometry.isDegenerate();
+    }
+
+    public double getSinStartLat() {
+        return geometry.getSinStartLat();
+    }
+
+    public double getCosStartLat() {
+        return geometry.getCosStartLat();
+    }
+
+    public double getSinStartLong() {
+        return geometry.getSinStartLong();
+    }
+
+    public double getCosStartLong() {
+        return geometry.getCosStartLong();
+    }
+
+    public double getSinEndLat() {
+        return geometry.getSinEndLat();
+    }
+
+    public double getCosEndLat() {
+        return geometry.getCosEndLat();
+    }
+
+    public double getSinEndLong() {
+        return geometry.getSinEndLong();
+    }
+
+    public double getCosEndLong() {
+        return geometry.getCosEndLong();
+    }
+
+    /**
+     * @return the geometry of the segment, which must not be reset
+     */
+    SegmentGeometry getGeometry() {
+        return geometry;
+    }
+}
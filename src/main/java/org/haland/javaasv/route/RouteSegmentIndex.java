@@ -0,0 +1,272 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import java.util.Arrays;
+
+import static java.lang.Math.*;
+
+/**
+ * Uniform grid over the segments of an {@link IndexedRouteInterface}, answering nearest-segment and within-radius
+ * queries without scanning the whole route. Each segment is stored in every cell its bounding box overlaps, and the
+ * cells are packed into two <code>int</code> arrays, so the index stays compact for routes with hundreds of thousands
+ * of waypoints.
+ * <p>
+ * The grid is built in latitude and longitude, so it assumes segments are short compared to the earth and that the
+ * route does not cross the antimeridian. Positions and distances are in radians. Waypoints are read from the route by
+ * index, so neither building the index nor querying it creates segments. Queries reuse internal scratch space and are
+ * not thread-safe.
+ */
+public class RouteSegmentIndex {
+    // Average number of segments per cell when the cell size is chosen automatically
+    private static final int TARGET_SEGMENTS_PER_CELL = 2;
+    private static final int MAX_CELLS = 1 << 22;
+    private static final double MIN_CELL_SIZE = 1e-9;
+
+    private final IndexedRouteInterface route;
+
+    private final double minLat;
+    private final double minLong;
+    private final double cellLat;
+    private final double cellLong;
+    private final int rows;
+    private final int columns;
+
+    // Smallest angular distance across a cell, used to bound the nearest-segment search
+    private final double minCellAngle;
+
+    // Segments of cell i are cellSegments[cellStart[i]] to cellSegments[cellStart[i + 1] - 1]
+    private final int[] cellStart;
+    private final int[] cellSegments;
+
+    // Marks segments already checked by the current query
+    private final int[] visited;
+    private int queryCount;
+    private int[] results = new int[16];
+    private final SegmentGeometry geometry = new SegmentGeometry();
+
+    /**
+     * Builds an index with a cell size chosen from the route's extent and segment count
+     * @param route the route to index
+     */
+    public RouteSegmentIndex(IndexedRouteInterface route) {
+        this(route, 0);
+    }
+
+    /**
+     * Builds an index
+     * @param route    the route to index
+     * @param cellSize the angular size of a grid cell in radians, or 0 to choose one from the route
+     */
+    public RouteSegmentIndex(IndexedRouteInterface route, double cellSize) {
+        int segmentCount = route.getSegmentCount();
+        if (segmentCount == 0) {
+            throw new IllegalArgumentException("Cannot index a route without segments");
+        }
+        this.route = route;
+
+        // Bounding box of the route
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double minLong = Double.POSITIVE_INFINITY;
+        double maxLong = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i <= segmentCount; i++) {
+            double lat = toRadians(route.getLatitude(i));
+            double lon = toRadians(route.getLongitude(i));
+            minLat = min(minLat, lat);
+            maxLat = max(maxLat, lat);
+            minLong = min(minLong, lon);
+            maxLong = max(maxLong, lon);
+        }
+        this.minLat = minLat;
+        this.minLong = minLong;
+
+        double cosMidLat = cos((minLat + maxLat) / 2);
+        double height = maxLat - minLat;
+        double width = (maxLong - minLong) * cosMidLat;
+        if (cellSize <= 0) {
+            cellSize = max(sqrt(height * width * TARGET_SEGMENTS_PER_CELL / segmentCount),
+                    max(height, width) * TARGET_SEGMENTS_PER_CELL / segmentCount);
+        }
+        cellSize = max(cellSize, MIN_CELL_SIZE);
+        while ((floor(height / cellSize) + 1) * (floor(width / cellSize) + 1) > MAX_CELLS) {
+            cellSize *= 2;
+        }
+
+        cellLat = cellSize;
+        cellLong = cellSize / cosMidLat;
+        rows = (int) floor(height / cellLat) + 1;
+        columns = (int) floor((maxLong - minLong) / cellLong) + 1;
+        minCellAngle = min(cellLat, cellLong * cos(max(abs(minLat), abs(maxLat))));
+
+        // Count the segments in each cell, then fill the cells
+        cellStart = new int[rows * columns + 1];
+        for (int i = 0; i < segmentCount; i++) {
+            forEachCell(i, null);
+        }
+        for (int cell = 0; cell < rows * columns; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        cellSegments = new int[cellStart[rows * columns]];
+        int[] fill = Arrays.copyOf(cellStart, rows * columns);
+        for (int i = 0; i < segmentCount; i++) {
+            forEachCell(i, fill);
+        }
+
+        visited = new int[segmentCount];
+    }
+
+    /**
+     * Counts a segment into each cell its bounding box overlaps, or stores it when <code>fill</code> is provided
+     */
+    private void forEachCell(int segmentIndex, int[] fill) {
+        double startLat = toRadians(route.getLatitude(segmentIndex));
+        double endLat = toRadians(route.getLatitude(segmentIndex + 1));
+        double startLong = toRadians(route.getLongitude(segmentIndex));
+        double endLong = toRadians(route.getLongitude(segmentIndex + 1));
+
+        int firstRow = row(min(startLat, endLat));
+        int lastRow = row(max(startLat, endLat));
+        int firstColumn = column(min(startLong, endLong));
+        int lastColumn = column(max(startLong, endLong));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                if (fill == null) {
+                    cellStart[cell + 1]++;
+                } else {
+                    cellSegments[fill[cell]++] = segmentIndex;
+                }
+            }
+        }
+    }
+
+    private int row(double lat) {
+        return max(0, min(rows - 1, (int) floor((lat - minLat) / cellLat)));
+    }
+
+    private int column(double lon) {
+        return max(0, min(columns - 1, (int) floor((lon - minLong) / cellLong)));
+    }
+
+    /**
+     * Finds the segment closest to a position. When several segments are equally close, the one with the lowest index
+     * is returned.
+     *
+     * @param lat latitude of the position, in radians
+     * @param lon longitude of the position, in radians
+     * @return the index of the closest segment
+     */
+    public int nearestSegment(double lat, double lon) {
+        double cosLat = cos(lat);
+        double x = cosLat * cos(lon);
+        double y = cosLat * sin(lon);
+        double z = sin(lat);
+
+        int centerRow = row(lat);
+        int centerColumn = column(lon);
+        int maxRing = max(max(centerRow, rows - 1 - centerRow), max(centerColumn, columns - 1 - centerColumn));
+        queryCount++;
+
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        // Cells in ring r are at least r - 1 cells away from the cell containing the position
+        for (int ring = 0; ring <= maxRing && bestDistance > (ring - 1) * minCellAngle; ring++) {
+            for (int row = max(0, centerRow - ring); row <= min(rows - 1, centerRow + ring); row++) {
+                boolean edgeRow = abs(row - centerRow) == ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    if (column < 0 || column >= columns) {
+                        continue;
+                    }
+                    int cell = row * columns + column;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int segmentIndex = cellSegments[i];
+                        if (visited[segmentIndex] == queryCount) {
+                            continue;
+                        }
+                        visited[segmentIndex] = queryCount;
+
+                        double distance = geometry.set(route, segmentIndex).angularDistanceTo(x, y, z);
+                        if (distance < bestDistance || (distance == bestDistance && segmentIndex < best)) {
+                            best = segmentIndex;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds every segment passing within a distance of a position
+     *
+     * @param lat    latitude of the position, in radians
+     * @param lon    longitude of the position, in radians
+     * @param radius the angular distance to search, in radians
+     * @return the indices of the segments, in ascending order
+     */
+    public int[] segmentsWithin(double lat, double lon, double radius) {
+        double cosLat = cos(lat);
+        double x = cosLat * cos(lon);
+        double y = cosLat * sin(lon);
+        double z = sin(lat);
+
+        // Widen the longitude range for the convergence of meridians, capped near the poles
+        double longRadius = radius / max(cosLat, 1e-6);
+        int firstRow = row(lat - radius);
+        int lastRow = row(lat + radius);
+        int firstColumn = column(lon - longRadius);
+        int lastColumn = column(lon + longRadius);
+        queryCount++;
+
+        int count = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int segmentIndex = cellSegments[i];
+                    if (visited[segmentIndex] == queryCount) {
+                        continue;
+                    }
+                    visited[segmentIndex] = queryCount;
+
+                    if (geometry.set(route, segmentIndex).angularDistanceTo(x, y, z) <= radius) {
+                        if (count == results.length) {
+                            results = Arrays.copyOf(results, count * 2);
+                        }
+                        results[count++] = segmentIndex;
+                    }
+                }
+            }
+        }
+
+        int[] segments = Arrays.copyOf(results, count);
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * @return the indexed route
+     */
+    public IndexedRouteInterface getRoute() {
+        return route;
+    }
+}
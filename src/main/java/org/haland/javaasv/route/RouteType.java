@@ -23,5 +23,13 @@ package org.haland.javaasv.route;
  */
 public enum RouteType {
     FILE,
-    TWO_POINT
+    TWO_POINT,
+    /**
+     * A route file in the binary format written by {@link RouteBinaryFile}
+     */
+    BINARY,
+    /**
+     * A binary route file read a page at a time by a {@link PagedRoute}
+     */
+    PAGED
 }
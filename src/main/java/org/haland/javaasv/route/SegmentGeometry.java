@@ -0,0 +1,213 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import static java.lang.Math.*;
+
+/**
+ * The great circle geometry of a segment, shared by {@link RouteSegment} and by code that walks the segments of an
+ * {@link IndexedRouteInterface} by index. Unlike a {@link RouteSegment}, a geometry can be reset to another segment,
+ * so one instance serves any number of segments without allocating.
+ * <p>
+ * Points are represented as unit vectors in an earth-centered frame with z towards the north pole.
+ */
+final class SegmentGeometry {
+    private double sinStartLat;
+    private double cosStartLat;
+    private double sinStartLong;
+    private double cosStartLong;
+    private double sinEndLat;
+    private double cosEndLat;
+    private double sinEndLong;
+    private double cosEndLong;
+
+    private double startX;
+    private double startY;
+    private double startZ;
+    private double endX;
+    private double endY;
+    private double endZ;
+
+    // Unit normal of the great circle, pointing to the right of the path
+    private double normalX;
+    private double normalY;
+    private double normalZ;
+
+    // Unit tangent of the great circle at the start waypoint, pointing along the path
+    private double tangentX;
+    private double tangentY;
+    private double tangentZ;
+
+    private double angularLength;
+    private boolean degenerate;
+
+    /**
+     * Sets the geometry to the segment starting at a waypoint of a route
+     *
+     * @param route the route
+     * @param index index of the segment's start waypoint
+     * @return this geometry
+     */
+    SegmentGeometry set(IndexedRouteInterface route, int index) {
+        return set(toRadians(route.getLatitude(index)), toRadians(route.getLongitude(index)),
+                toRadians(route.getLatitude(index + 1)), toRadians(route.getLongitude(index + 1)));
+    }
+
+    /**
+     * Sets the geometry to the segment between two positions
+     *
+     * @param startLat  latitude of the start, in radians
+     * @param startLong longitude of the start, in radians
+     * @param endLat    latitude of the end, in radians
+     * @param endLong   longitude of the end, in radians
+     * @return this geometry
+     */
+    SegmentGeometry set(double startLat, double startLong, double endLat, double endLong) {
+        sinStartLat = sin(startLat);
+        cosStartLat = cos(startLat);
+        sinStartLong = sin(startLong);
+        cosStartLong = cos(startLong);
+        sinEndLat = sin(endLat);
+        cosEndLat = cos(endLat);
+        sinEndLong = sin(endLong);
+        cosEndLong = cos(endLong);
+
+        startX = cosStartLat * cosStartLong;
+        startY = cosStartLat * sinStartLong;
+        startZ = sinStartLat;
+        endX = cosEndLat * cosEndLong;
+        endY = cosEndLat * sinEndLong;
+        endZ = sinEndLat;
+
+        // end x start points to the right of the path from start to end
+        double x = endY * startZ - endZ * startY;
+        double y = endZ * startX - endX * startZ;
+        double z = endX * startY - endY * startX;
+        double length = sqrt(x * x + y * y + z * z);
+
+        // A segment with coincident endpoints has no path, so it has no normal or tangent
+        degenerate = length < 1e-15;
+        if (degenerate) {
+            normalX = 0;
+            normalY = 0;
+            normalZ = 0;
+        } else {
+            normalX = x / length;
+            normalY = y / length;
+            normalZ = z / length;
+        }
+        tangentX = startY * normalZ - startZ * normalY;
+        tangentY = startZ * normalX - startX * normalZ;
+        tangentZ = startX * normalY - startY * normalX;
+
+        angularLength = atan2(length, startX * endX + startY * endY + startZ * endZ);
+        return this;
+    }
+
+    /**
+     * @see RouteSegment#crossTrackAngle(double, double, double)
+     */
+    double crossTrackAngle(double x, double y, double z) {
+        return asin(max(-1, min(normalX * x + normalY * y + normalZ * z, 1)));
+    }
+
+    /**
+     * @see RouteSegment#alongTrackAngle(double, double, double)
+     */
+    double alongTrackAngle(double x, double y, double z) {
+        if (degenerate) {
+            return 0;
+        }
+        return atan2(tangentX * x + tangentY * y + tangentZ * z, startX * x + startY * y + startZ * z);
+    }
+
+    /**
+     * @see RouteSegment#angularDistanceToEnd(double, double, double)
+     */
+    double angularDistanceToEnd(double x, double y, double z) {
+        // The chord between two unit vectors is 2 sin(d / 2), which stays accurate for short distances like haversine
+        double dx = endX - x;
+        double dy = endY - y;
+        double dz = endZ - z;
+        return 2 * asin(min(sqrt(dx * dx + dy * dy + dz * dz) / 2, 1));
+    }
+
+    /**
+     * @see RouteSegment#angularDistanceToStart(double, double, double)
+     */
+    double angularDistanceToStart(double x, double y, double z) {
+        double dx = startX - x;
+        double dy = startY - y;
+        double dz = startZ - z;
+        return 2 * asin(min(sqrt(dx * dx + dy * dy + dz * dz) / 2, 1));
+    }
+
+    /**
+     * @see RouteSegment#angularDistanceTo(double, double, double)
+     */
+    double angularDistanceTo(double x, double y, double z) {
+        double alongTrack = alongTrackAngle(x, y, z);
+        if (alongTrack <= 0) {
+            return angularDistanceToStart(x, y, z);
+        } else if (alongTrack >= angularLength) {
+            return angularDistanceToEnd(x, y, z);
+        }
+        return abs(crossTrackAngle(x, y, z));
+    }
+
+    double getAngularLength() {
+        return angularLength;
+    }
+
+    boolean isDegenerate() {
+        return degenerate;
+    }
+
+    double getSinStartLat() {
+        return sinStartLat;
+    }
+
+    double getCosStartLat() {
+        return cosStartLat;
+    }
+
+    double getSinStartLong() {
+        return sinStartLong;
+    }
+
+    double getCosStartLong() {
+        return cosStartLong;
+    }
+
+    double getSinEndLat() {
+        return sinEndLat;
+    }
+
+    double getCosEndLat() {
+        return cosEndLat;
+    }
+
+    double getSinEndLong() {
+        return sinEndLong;
+    }
+
+    double getCosEndLong() {
+        return cosEndLong;
+    }
+}
@@ -19,11 +19,11 @@
 package org.haland.javaasv.route;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-public class SegmentedRoute implements RouteInterface {
+public class SegmentedRoute implements IndexedRouteInterface {
     private List<WaypointInterface> waypointList;
+    private List<RouteSegment> segmentList;
     private int currentWaypoint;
 
     /**
@@ -31,6 +31,7 @@ public class SegmentedRoute implements RouteInterface {
      */
     private SegmentedRoute() {
         this.waypointList = new ArrayList<WaypointInterface>();
+        this.segmentList = new ArrayList<RouteSegment>();
         this.currentWaypoint = 0;
     }
 
@@ -41,6 +42,9 @@ public class SegmentedRoute implements RouteInterface {
     public SegmentedRoute(SegmentedRoute route) {
         this.waypointList = new ArrayList<WaypointInterface>();
         this.waypointList.addAll(route.waypointList);
+        // Segments are immutable, so they can be shared with the copied route
+        this.segmentList = new ArrayList<RouteSegment>();
+        this.segmentList.addAll(route.segmentList);
         this.currentWaypoint = route.currentWaypoint;
     }
 
@@ -51,13 +55,45 @@ public class SegmentedRoute implements RouteInterface {
      */
     public SegmentedRoute(WaypointInterface... waypoints) {
         this();
-        this.waypointList.addAll(Arrays.asList(waypoints));
+        for (WaypointInterface waypoint : waypoints) {
+            addWaypoint(waypoint);
+        }
     }
 
+    /**
+     * Adds a waypoint to the end of the route, precomputing the geometry of the segment leading to it
+     * @param waypoint the waypoint to add
+     */
     public void addWaypoint(WaypointInterface waypoint) {
+        if (!waypointList.isEmpty()) {
+            segmentList.add(new RouteSegment(waypointList.get(waypointList.size() - 1), waypoint));
+        }
         waypointList.add(waypoint);
     }
 
+    @Override
+    public RouteSegment getSegment(int index) {
+        return segmentList.get(index);
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return segmentList.size();
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return currentWaypoint;
+    }
+
+    @Override
+    public void setCurrentIndex(int index) {
+        if (index < 0 || index >= segmentList.size()) {
+            throw new IndexOutOfBoundsException("No segment " + index + " in route of " + segmentList.size());
+        }
+        currentWaypoint = index;
+    }
+
     /**
      * Returns the waypoint with the specified index
      * @param index
@@ -67,6 +103,26 @@ public class SegmentedRoute implements RouteInterface {
         return waypointList.get(index);
     }
 
+    @Override
+    public double getLatitude(int index) {
+        return waypointList.get(index).getLatitude();
+    }
+
+    @Override
+    public double getLongitude(int index) {
+        return waypointList.get(index).getLongitude();
+    }
+
+    @Override
+    public double getTolerance(int index) {
+        return waypointList.get(index).getTolerance();
+    }
+
+    @Override
+    public WaypointInterface.WaypointBehavior getBehavior(int index) {
+        return waypointList.get(index).getDestinationBehavior();
+    }
+
     public int getRouteLength() {
         return waypointList.size();
     }
@@ -81,6 +137,11 @@ public class SegmentedRoute implements RouteInterface {
         return waypointList.get(currentWaypoint + 1);
     }
 
+    @Override
+    public RouteSegment getCurrentSegment() {
+        return segmentList.get(currentWaypoint);
+    }
+
     @Override
     public boolean isComplete() {
         return (currentWaypoint == waypointList.size() - 2);
@@ -0,0 +1,127 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Growable struct-of-arrays store of waypoints, keeping latitude, longitude, tolerance and behavior in parallel
+ * primitive arrays instead of one object per waypoint
+ */
+public final class WaypointColumns {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final WaypointInterface.WaypointBehavior[] BEHAVIORS = WaypointInterface.WaypointBehavior.values();
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] tolerances;
+    private byte[] behaviors;
+    private int size;
+
+    /**
+     * Constructs an empty store
+     */
+    public WaypointColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store with room for <code>capacity</code> waypoints before growing
+     * @param capacity the initial capacity
+     */
+    public WaypointColumns(int capacity) {
+        capacity = Math.max(capacity, 1);
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        tolerances = new double[capacity];
+        behaviors = new byte[capacity];
+    }
+
+    /**
+     * Adds a waypoint to the end of the store
+     *
+     * @param latitude  latitude of the waypoint
+     * @param longitude longitude of the waypoint
+     * @param tolerance tolerance of the waypoint
+     * @param behavior  behavior of the waypoint
+     */
+    public void add(double latitude, double longitude, double tolerance, WaypointInterface.WaypointBehavior behavior) {
+        add(latitude, longitude, tolerance, (byte) behavior.ordinal());
+    }
+
+    void add(double latitude, double longitude, double tolerance, byte behaviorOrdinal) {
+        if (size == latitudes.length) {
+            resize(size * 2);
+        }
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        tolerances[size] = tolerance;
+        behaviors[size] = behaviorOrdinal;
+        size++;
+    }
+
+    /**
+     * Releases unused capacity
+     */
+    public void trimToSize() {
+        if (size < latitudes.length) {
+            resize(size);
+        }
+    }
+
+    private void resize(int capacity) {
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        tolerances = Arrays.copyOf(tolerances, capacity);
+        behaviors = Arrays.copyOf(behaviors, capacity);
+    }
+
+    /**
+     * @return the number of waypoints stored
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[Objects.checkIndex(index, size)];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[Objects.checkIndex(index, size)];
+    }
+
+    public double getTolerance(int index) {
+        return tolerances[Objects.checkIndex(index, size)];
+    }
+
+    public WaypointInterface.WaypointBehavior getBehavior(int index) {
+        return BEHAVIORS[behaviors[Objects.checkIndex(index, size)]];
+    }
+
+    /**
+     * Creates a {@link Waypoint} from a stored waypoint
+     * @param index index of the waypoint
+     * @return a new {@link Waypoint}
+     */
+    public Waypoint getWaypoint(int index) {
+        return new Waypoint(getLatitude(index), getLongitude(index), getTolerance(index), getBehavior(index));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.util;
+
+/**
+ * A lock-free ring buffer of bytes for exactly one producer thread and one consumer thread. Neither side ever blocks:
+ * writes into a full buffer and reads from an empty one return early with fewer bytes. The read and write positions
+ * only increase, so the buffer is full when they differ by its capacity.
+ */
+public final class ByteRingBuffer {
+    private final byte[] buffer;
+    private final int mask;
+
+    // Written only by the consumer
+    private volatile long readPosition;
+
+    // Written only by the producer
+    private volatile long writePosition;
+
+    /**
+     * Constructs a new ring buffer
+     * @param capacity the capacity in bytes, which must be a power of two
+     */
+    public ByteRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two");
+        }
+        this.buffer = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Copies bytes into the buffer. Only the producer thread may call this.
+     * @param source the bytes to copy
+     * @param offset index of the first byte
+     * @param length the number of bytes to copy
+     * @return the number of bytes copied, less than <code>length</code> if the buffer filled up
+     */
+    public int write(byte[] source, int offset, int length) {
+        long write = writePosition;
+        int count = Math.min(length, buffer.length - (int) (write - readPosition));
+        if (count <= 0) {
+            return 0;
+        }
+
+        int index = (int) write & mask;
+        int first = Math.min(count, buffer.length - index);
+        System.arraycopy(source, offset, buffer, index, first);
+        System.arraycopy(source, offset + first, buffer, 0, count - first);
+
+        // Publishes the bytes to the consumer
+        writePosition = write + count;
+        return count;
+    }
+
+    /**
+     * Copies bytes into the buffer only if they all fit, so that a message is never split. Only the producer thread
+     * may call this.
+     * @param source the bytes to copy
+     * @param offset index of the first byte
+     * @param length the number of bytes to copy
+     * @return <code>true</code> if the bytes were copied, <code>false</code> if there was not room for all of them
+     */
+    public boolean offer(byte[] source, int offset, int length) {
+        if (length > buffer.length - (int) (writePosition - readPosition)) {
+            return false;
+        }
+        write(source, offset, length);
+        return true;
+    }
+
+    /**
+     * Copies bytes out of the buffer. Only the consumer thread may call this.
+     * @param destination the array to copy into
+     * @param offset      index to copy the first byte to
+     * @param length      the most bytes to copy
+     * @return the number of bytes copied, 0 if the buffer was empty
+     */
+    public int read(byte[] destination, int offset, int length) {
+        long read = readPosition;
+        int count = Math.min(length, (int) (writePosition - read));
+        if (count <= 0) {
+            return 0;
+        }
+
+        int index = (int) read & mask;
+        int first = Math.min(count, buffer.length - index);
+        System.arraycopy(buffer, index, destination, offset, first);
+        System.arraycopy(buffer, 0, destination, offset + first, count - first);
+
+        // Frees the space for the producer
+        readPosition = read + count;
+        return count;
+    }
+
+    /**
+     * @return the number of bytes waiting to be read. This is exact only when called by the producer or consumer.
+     */
+    public int size() {
+        long read = readPosition;
+        return (int) (writePosition - read);
+    }
+
+    /**
+     * @return the number of bytes the buffer holds when full
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+}
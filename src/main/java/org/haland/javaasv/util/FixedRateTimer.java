@@ -0,0 +1,134 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces a loop at a fixed rate using absolute deadlines, so time spent doing work does not add to the period and the
+ * loop does not drift. An iteration that finishes after its deadline counts as an overrun, and the missed deadlines are
+ * skipped rather than run back to back. The lateness of each wake-up is recorded as jitter.
+ * <p>
+ * Only the loop's own thread should call {@link #start()} and {@link #awaitNextDeadline()}; the statistics may be read
+ * from any thread.
+ */
+public class FixedRateTimer {
+    private final MonotonicClock clock;
+    private final long periodNanos;
+    private long nextDeadline;
+
+    private volatile long cycleCount;
+    private volatile long overrunCount;
+    private volatile long maxJitterNanos;
+    private volatile long totalJitterNanos;
+
+    /**
+     * Constructs a new timer on the {@link SystemClock}
+     * @param period the loop period
+     * @param unit   the unit of <code>period</code>
+     */
+    public FixedRateTimer(long period, TimeUnit unit) {
+        this(period, unit, SystemClock.getInstance());
+    }
+
+    /**
+     * Constructs a new timer
+     * @param period the loop period
+     * @param unit   the unit of <code>period</code>
+     * @param clock  the clock to take deadlines from
+     */
+    public FixedRateTimer(long period, TimeUnit unit, MonotonicClock clock) {
+        this.clock = clock;
+        this.periodNanos = unit.toNanos(period);
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("Period must be positive, was " + period + " " + unit);
+        }
+    }
+
+    /**
+     * Sets the first deadline one period from now
+     */
+    public void start() {
+        nextDeadline = clock.nanoTime() + periodNanos;
+    }
+
+    /**
+     * Parks until the next deadline
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitNextDeadline() throws InterruptedException {
+        long now = clock.nanoTime();
+        if (now - nextDeadline > 0) {
+            overrunCount++;
+            nextDeadline += ((now - nextDeadline) / periodNanos + 1) * periodNanos;
+        }
+
+        clock.parkUntil(nextDeadline);
+
+        long jitter = clock.nanoTime() - nextDeadline;
+        totalJitterNanos += jitter;
+        if (jitter > maxJitterNanos) {
+            maxJitterNanos = jitter;
+        }
+        cycleCount++;
+        nextDeadline += periodNanos;
+    }
+
+    /**
+     * @return the loop period in nanoseconds
+     */
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * @return the number of deadlines waited for
+     */
+    public long getCycleCount() {
+        return cycleCount;
+    }
+
+    /**
+     * @return the number of iterations that finished after their deadline
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * @return the latest any wake-up has been after its deadline, in nanoseconds
+     */
+    public long getMaxJitterNanos() {
+        return maxJitterNanos;
+    }
+
+    /**
+     * @return the mean lateness of wake-ups after their deadlines, in nanoseconds
+     */
+    public double getMeanJitterNanos() {
+        long cycles = cycleCount;
+        return cycles == 0 ? 0 : (double) totalJitterNanos / cycles;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d cycles of %.3f ms, %d overruns, jitter mean %.3f ms max %.3f ms", cycleCount,
+                periodNanos / 1e6, overrunCount, getMeanJitterNanos() / 1e6, maxJitterNanos / 1e6);
+    }
+}
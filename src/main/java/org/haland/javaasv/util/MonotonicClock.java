@@ -0,0 +1,41 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.util;
+
+/**
+ * A monotonic time base with nanosecond resolution. Unlike wall-clock time it never jumps, so differences between
+ * readings are always valid elapsed times. Control loops take their time from a clock so that tests can substitute a
+ * {@link VirtualClock} and run faster than real time.
+ */
+public interface MonotonicClock {
+    /**
+     * Reads the clock. Only differences between readings are meaningful.
+     *
+     * @return the current time in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * Blocks until the clock reaches a deadline
+     *
+     * @param deadlineNanos the time to wait for, in the same time base as {@link #nanoTime()}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void parkUntil(long deadlineNanos) throws InterruptedException;
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.util;
+
+import org.haland.javaasv.route.RouteSegment;
+
+import static java.lang.Math.*;
+
+/**
+ * Computes the bearing and distance to the next waypoint and the cross-track and along-track distances on the current
+ * {@link RouteSegment} in a single call, without allocating. The segment's geometry is precomputed, so only four trig
+ * functions of the position are evaluated per update.
+ * <p>
+ * Instances hold the result of the last update and are not thread-safe; each pilot should own one.
+ */
+public final class NavigationKernel {
+    private RouteSegment segment;
+
+    // Results of the last update
+    private double bearingToNext;
+    private double angularDistanceToNext;
+    private double crossTrackAngle;
+    private double alongTrackAngle;
+
+    /**
+     * Sets the route segment to navigate along
+     *
+     * @param segment the current {@link RouteSegment}
+     */
+    public void setSegment(RouteSegment segment) {
+        this.segment = segment;
+    }
+
+    /**
+     * @return the segment the last update was calculated against
+     */
+    public RouteSegment getSegment() {
+        return segment;
+    }
+
+    /**
+     * Updates the navigation quantities for a new position
+     *
+     * @param lat latitude of the ASV, in radians
+     * @param lon longitude of the ASV, in radians
+     */
+    public void update(double lat, double lon) {
+        double sinLat = sin(lat);
+        double cosLat = cos(lat);
+        double sinLong = sin(lon);
+        double cosLong = cos(lon);
+
+        // Initial bearing to the next waypoint, using the angle difference identities for the change in longitude
+        double sinEndLong = segment.getSinEndLong();
+        double cosEndLong = segment.getCosEndLong();
+        double cosEndLat = segment.getCosEndLat();
+        double sinDeltaLong = sinEndLong * cosLong - cosEndLong * sinLong;
+        double cosDeltaLong = cosEndLong * cosLong + sinEndLong * sinLong;
+        bearingToNext = PilotUtil.normalizeBearing(atan2(sinDeltaLong * cosEndLat,
+                cosLat * segment.getSinEndLat() - sinLat * cosEndLat * cosDeltaLong));
+
+        double x = cosLat * cosLong;
+        double y = cosLat * sinLong;
+        double z = sinLat;
+
+        angularDistanceToNext = segment.angularDistanceToEnd(x, y, z);
+        crossTrackAngle = segment.crossTrackAngle(x, y, z);
+        alongTrackAngle = segment.alongTrackAngle(x, y, z);
+    }
+
+    /**
+     * @return the initial bearing from the last position to the next waypoint, in radians between 0 and 2&pi;
+     */
+    public double getBearingToNext() {
+        return bearingToNext;
+    }
+
+    /**
+     * @return the angular distance from the last position to the next waypoint, in radians
+     */
+    public double getAngularDistanceToNext() {
+        return angularDistanceToNext;
+    }
+
+    /**
+     * @param earthRadius radius of the earth in the desired units
+     * @return the distance from the last position to the next waypoint, in units of earthRadius
+     */
+    public double getDistanceToNext(EarthRadius earthRadius) {
+        return angularDistanceToNext * earthRadius.getValue();
+    }
+
+    /**
+     * @return the angular cross-track distance of the last position, in radians, positive when right of the path
+     */
+    public double getCrossTrackAngle() {
+        return crossTrackAngle;
+    }
+
+    /**
+     * @param earthRadius radius of the earth in the desired units
+     * @return the cross-track distance of the last position, in units of earthRadius, positive when right of the path
+     */
+    public double getCrossTrackDistance(EarthRadius earthRadius) {
+        return crossTrackAngle * earthRadius.getValue();
+    }
+
+    /**
+     * @return the angular distance along the segment from its start to abeam the last position, in radians
+     */
+    public double getAlongTrackAngle() {
+        return alongTrackAngle;
+    }
+
+    /**
+     * @param earthRadius radius of the earth in the desired units
+     * @return the distance along the segment from its start to abeam the last position, in units of earthRadius
+     */
+    public double getAlongTrackDistance(EarthRadius earthRadius) {
+        return alongTrackAngle * earthRadius.getValue();
+    }
+}
@@ -19,18 +19,27 @@ public class PilotUtil {
      * @return the initial bearing in radians
      */
     public static double calculateInitialBearingRadians(double[] previousWaypoint, double[] nextWaypoint) {
-        double firstLat = toRadians(previousWaypoint[0]);
-        double firstLong = toRadians(previousWaypoint[1]);
-
-        double secondLat = toRadians(nextWaypoint[0]);
-        double secondLong = toRadians(nextWaypoint[1]);
+        return calculateInitialBearingRadians(toRadians(previousWaypoint[0]), toRadians(previousWaypoint[1]),
+                toRadians(nextWaypoint[0]), toRadians(nextWaypoint[1]));
+    }
 
+    /**
+     * Calculates the initial bearing between two points given in radians, without allocating
+     *
+     * @param firstLat   latitude of the first point, in radians
+     * @param firstLong  longitude of the first point, in radians
+     * @param secondLat  latitude of the second point, in radians
+     * @param secondLong longitude of the second point, in radians
+     * @return the initial bearing in radians, between 0 and 2&pi;
+     */
+    public static double calculateInitialBearingRadians(double firstLat, double firstLong, double secondLat,
+                                                        double secondLong) {
         double deltaLong = secondLong - firstLong;
+        double cosSecondLat = cos(secondLat);
 
-        double y = sin(deltaLong) * cos(secondLat);
-        double x = cos(firstLat) * sin(secondLat) - sin(firstLat) * cos(secondLat) * cos(deltaLong);
-        double theta = atan2(y, x);
-        return (theta + 2 * PI) % (2 * PI);
+        double y = sin(deltaLong) * cosSecondLat;
+        double x = cos(firstLat) * sin(secondLat) - sin(firstLat) * cosSecondLat * cos(deltaLong);
+        return normalizeBearing(atan2(y, x));
     }
 
     /**
@@ -52,18 +61,22 @@ public class PilotUtil {
      * @return angular distance in radians
      */
     public static double calculateAngularDistance(double[] firstPoint, double[] secondPoint) {
-        double firstLat = toRadians(firstPoint[0]);
-        double firstLong = toRadians(firstPoint[1]);
-
-        double secondLat = toRadians(secondPoint[0]);
-        double secondLong = toRadians(secondPoint[1]);
-
-        double deltaLong = secondLong - firstLong;
-        double deltaLat = secondLat - firstLat;
-
-        double centralAngleRadians = archav(hav(deltaLat) + cos(firstLat) * cos(secondLat) * hav(deltaLong));
+        return calculateAngularDistance(toRadians(firstPoint[0]), toRadians(firstPoint[1]),
+                toRadians(secondPoint[0]), toRadians(secondPoint[1]));
+    }
 
-        return centralAngleRadians;
+    /**
+     * Calculates the angular distance between two points given in radians, without allocating
+     *
+     * @param firstLat   latitude of the first point, in radians
+     * @param firstLong  longitude of the first point, in radians
+     * @param secondLat  latitude of the second point, in radians
+     * @param secondLong longitude of the second point, in radians
+     * @return angular distance in radians
+     */
+    public static double calculateAngularDistance(double firstLat, double firstLong, double secondLat,
+                                                  double secondLong) {
+        return archav(hav(secondLat - firstLat) + cos(firstLat) * cos(secondLat) * hav(secondLong - firstLong));
     }
 
     /**
@@ -113,10 +126,54 @@ public class PilotUtil {
      */
     public static double calculateCrossTrackDistance(double[] prevWaypoint, double[] nextWaypoint, double[] position,
                                                      EarthRadius earthRadius) {
-        double dist_13 = calculateAngularDistance(prevWaypoint, position);
-        double bear_13 = calculateInitialBearingRadians(prevWaypoint, position);
-        double bear_12 = calculateInitialBearingRadians(prevWaypoint, nextWaypoint);
-        return asin(sin(dist_13) * sin(bear_13 - bear_12)) * earthRadius.getValue();
+        return calculateCrossTrackAngle(toRadians(prevWaypoint[0]), toRadians(prevWaypoint[1]),
+                toRadians(nextWaypoint[0]), toRadians(nextWaypoint[1]),
+                toRadians(position[0]), toRadians(position[1])) * earthRadius.getValue();
+    }
+
+    /**
+     * Calculates the angular cross-track distance of a position from the great circle path between two waypoints.
+     * All arguments are in radians, and the trig terms of the start waypoint are shared between the distance and
+     * bearing calculations. For evaluating bearing, distance and cross-track distance together every pilot loop, see
+     * {@link NavigationKernel}.
+     *
+     * @param prevLat  latitude of the start waypoint
+     * @param prevLong longitude of the start waypoint
+     * @param nextLat  latitude of the end waypoint
+     * @param nextLong longitude of the end waypoint
+     * @param lat      latitude of the ASV
+     * @param lon      longitude of the ASV
+     * @return the cross-track distance in radians, positive when the ASV is right of the path
+     */
+    public static double calculateCrossTrackAngle(double prevLat, double prevLong, double nextLat, double nextLong,
+                                                  double lat, double lon) {
+        double sinPrevLat = sin(prevLat);
+        double cosPrevLat = cos(prevLat);
+        double cosLat = cos(lat);
+        double cosNextLat = cos(nextLat);
+
+        // Angular distance and initial bearing from the start waypoint to the ASV
+        double deltaLong = lon - prevLong;
+        double dist_13 = archav(hav(lat - prevLat) + cosPrevLat * cosLat * hav(deltaLong));
+        double bear_13 = atan2(sin(deltaLong) * cosLat,
+                cosPrevLat * sin(lat) - sinPrevLat * cosLat * cos(deltaLong));
+
+        // Initial bearing of the path
+        double pathDeltaLong = nextLong - prevLong;
+        double bear_12 = atan2(sin(pathDeltaLong) * cosNextLat,
+                cosPrevLat * sin(nextLat) - sinPrevLat * cosNextLat * cos(pathDeltaLong));
+
+        return asin(sin(dist_13) * sin(bear_13 - bear_12));
+    }
+
+    /**
+     * Normalizes a bearing to between 0 and 2&pi;
+     *
+     * @param theta bearing in radians
+     * @return the equivalent bearing between 0 and 2&pi;
+     */
+    public static double normalizeBearing(double theta) {
+        return (theta + 2 * PI) % (2 * PI);
     }
 
     /**
@@ -126,7 +183,8 @@ public class PilotUtil {
      * @return
      */
     public static double hav(double theta) {
-        return pow(sin(theta / 2), 2);
+        double sinHalfTheta = sin(theta / 2);
+        return sinHalfTheta * sinHalfTheta;
     }
 
     /**
@@ -136,6 +194,7 @@ public class PilotUtil {
      * @return
      */
     public static double archav(double value) {
-        return 2 * asin(sqrt(value));
+        // Rounding can push the haversine of near-antipodal points just above 1
+        return 2 * asin(sqrt(min(value, 1)));
     }
 }
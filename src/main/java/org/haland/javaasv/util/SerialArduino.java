@@ -24,9 +24,16 @@ import com.fazecast.jSerialComm.SerialPortMessageListener;
 import org.tinylog.Logger;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Serial interface for the arduino
+ * Serial interface for the arduino. Callers never wait on the UART: outgoing data is copied into a bounded
+ * {@link ByteRingBuffer} and written by a dedicated I/O thread, which sends everything pending in a single write.
+ * Incoming messages are split on {@link SerialUtil#END_MESSAGE_CHAR} by jSerialComm's event thread and kept in a
+ * bounded queue, so none are lost between reads unless the queue overflows.
  */
 public class SerialArduino implements SerialDeviceInterface<byte[]> {
     /**
@@ -40,12 +47,29 @@ public class SerialArduino implements SerialDeviceInterface<byte[]> {
     private static final int DEFAULT_STOP_BITS = 1;
     private static final int DEFAULT_PARITY = 0;
 
+    // About 0.35 s of data at 115200 baud
+    private static final int OUTBOUND_CAPACITY = 4096;
+    private static final int INBOUND_CAPACITY = 256;
+
+    // The I/O thread checks whether it should stop at least this often
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
     private String portName;
     private SerialPort serialPort;
 
-    private ArduinoMessageListener messageListener;
-    private byte[] lastMessage;
-    private boolean messageAvailable;
+    private final ByteRingBuffer outbound = new ByteRingBuffer(OUTBOUND_CAPACITY);
+    private final BlockingQueue<byte[]> inbound = new ArrayBlockingQueue<>(INBOUND_CAPACITY);
+    private final ArduinoMessageListener messageListener = new ArduinoMessageListener();
+
+    private volatile Thread ioThread;
+    private volatile boolean running;
+
+    // Statistics
+    private volatile long bytesWritten;
+    private volatile long writeCount;
+    private volatile long messagesDropped;
+    private volatile long framesDropped;
 
     /**
      * Connect a new arduino with specified port name
@@ -69,7 +93,7 @@ public class SerialArduino implements SerialDeviceInterface<byte[]> {
     }
 
     /**
-     * Attempts to open the serial port
+     * Attempts to open the serial port, and starts the I/O thread if it opened
      *
      * @return <code>true</code> if the port was opened successfully, <code>false</code> otherwise
      */
@@ -80,6 +104,8 @@ public class SerialArduino implements SerialDeviceInterface<byte[]> {
         boolean opened = serialPort.openPort();
 
         if (opened) {
+            serialPort.addDataListener(messageListener);
+            startIO();
             Logger.info("Port " + portName + " opened successfully");
         } else {
             Logger.error("Failed to open port " + portName);
@@ -89,7 +115,7 @@ public class SerialArduino implements SerialDeviceInterface<byte[]> {
     }
 
     /**
-     * Attempts to close the serial port
+     * Attempts to close the serial port, after giving the I/O thread time to write any pending data
      *
      * @return <code>true</code> if the port was closed successfully, <code>false</code> otherwise
      */
@@ -97,6 +123,9 @@ public class SerialArduino implements SerialDeviceInterface<byte[]> {
     public synchronized boolean closePort() {
         Logger.info("Attempting to close serial port " + portName);
 
+        stopIO();
+        serialPort.removeDataListener();
+
         boolean closed = serialPort.closePort();
 
         if (closed) {
@@ -109,46 +138,176 @@ public class SerialArduino implements SerialDeviceInterface<byte[]> {
     }
 
     /**
-     * Sends an array of bytes over the serial connection by writing to the {@link SerialPort} object
+     * Starts the I/O thread. This is called by {@link #openPort()}, and should only be called directly for tests.
+     */
+    synchronized void startIO() {
+        running = true;
+        ioThread = new Thread(this::writeLoop, "arduino-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * Stops the I/O thread once it has written any pending data, or after {@link #CLOSE_TIMEOUT_MILLIS}
+     */
+    private void stopIO() {
+        Thread thread = ioThread;
+        if (thread != null) {
+            // Refuse further sends before the I/O thread's last read, so nothing accepted is left in the ring
+            synchronized (outbound) {
+                ioThread = null;
+                running = false;
+            }
+            LockSupport.unpark(thread);
+            try {
+                thread.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queues an array of bytes to be sent over the serial connection. This does not wait for the data to be written.
      *
      * @param serialData <code>byte[]</code> array containing data to send
-     * @return the number of bytes actually sent (-1 if no bytes sent)
+     * @return the number of bytes queued (-1 if the port is not open or closing, or the outbound buffer is full)
      */
     @Override
     public int sendSerialData(byte[] serialData) {
-        return serialPort.writeBytes(serialData, serialData.length);
+        return sendSerialData(serialData, serialData.length);
+    }
+
+    /**
+     * Queues the first <code>length</code> bytes of an array to be sent over the serial connection. The bytes are
+     * copied, so the caller may reuse the array as soon as this returns. A message is queued whole or not at all.
+     *
+     * @param serialData <code>byte[]</code> array containing data to send
+     * @param length     the number of bytes to send
+     * @return the number of bytes queued (-1 if the port is not open or closing, or the outbound buffer is full)
+     */
+    @Override
+    public int sendSerialData(byte[] serialData, int length) {
+        Thread thread;
+        // The ring has a single producer, so callers on different threads take turns copying into it. Checking the
+        // I/O thread under the same lock means nothing is queued once closePort() has started.
+        synchronized (outbound) {
+            thread = ioThread;
+            if (thread == null) {
+                return -1;
+            }
+            if (!outbound.offer(serialData, 0, length)) {
+                messagesDropped++;
+                return -1;
+            }
+        }
+
+        LockSupport.unpark(thread);
+        return length;
     }
 
-    private synchronized void setLastMessage(byte[] lastMessage) {
-        this.lastMessage = lastMessage;
+    /**
+     * Writes queued data until the port is closed. Everything queued since the last write goes out in one write.
+     */
+    private void writeLoop() {
+        byte[] batch = new byte[OUTBOUND_CAPACITY];
+        while (true) {
+            // Checked before reading: once this is false no more data is queued, so an empty read means all was sent
+            boolean stopping = !running;
+            int count = outbound.read(batch, 0, batch.length);
+            if (count > 0) {
+                writeFully(batch, count);
+            } else if (stopping) {
+                break;
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
     }
 
+    private void writeFully(byte[] batch, int count) {
+        int offset = 0;
+        while (offset < count) {
+            int written = writeBytes(batch, count - offset, offset);
+            if (written <= 0) {
+                Logger.error("Failed to write " + (count - offset) + " bytes to port " + portName);
+                return;
+            }
+            offset += written;
+            writeCount++;
+        }
+        bytesWritten += count;
+    }
+
+    /**
+     * Writes bytes to the port, blocking until they are written. This is only overridden for tests.
+     *
+     * @param buffer the bytes to write
+     * @param length the number of bytes to write
+     * @param offset the index of the first byte to write
+     * @return the number of bytes written, or -1 on error
+     */
+    int writeBytes(byte[] buffer, int length, int offset) {
+        return serialPort.writeBytes(buffer, length, offset);
+    }
+
+    /**
+     * Takes the oldest message received that has not been taken yet. Every message is kept until it is taken, unless
+     * more than the queue's capacity arrive in between.
+     *
+     * @return the message, or null if there is none
+     */
     @Override
-    public synchronized byte[] getLastMessage() {
-        byte[] message = lastMessage;
-        lastMessage = null;
-        return message;
+    public byte[] getLastMessage() {
+        return inbound.poll();
     }
 
     @Override
-    public synchronized boolean isMessageAvailable() {
-        return this.messageAvailable;
+    public boolean isMessageAvailable() {
+        return !inbound.isEmpty();
     }
 
-    private void setMessageAvailable(boolean messageAvailability) {
-        this.messageAvailable = messageAvailability;
+    /**
+     * @return the number of bytes written to the port
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
     }
 
     /**
-     * A class providing a message listener for the serial arduino
+     * @return the number of writes to the port, which is less than the number of messages sent when writes coalesce
      */
-    private final class ArduinoMessageListener implements SerialPortMessageListener {
-        private final SerialArduino serialArduino;
+    public long getWriteCount() {
+        return writeCount;
+    }
 
-        public ArduinoMessageListener(SerialArduino serialArduino) {
-            this.serialArduino = serialArduino;
-        }
+    /**
+     * @return the number of outgoing messages dropped because the outbound buffer was full
+     */
+    public long getMessagesDropped() {
+        return messagesDropped;
+    }
+
+    /**
+     * @return the number of incoming messages dropped because the inbound queue was full
+     */
+    public long getFramesDropped() {
+        return framesDropped;
+    }
+
+    /**
+     * Provides the listener that is added to the port when it opens. This should only be called for tests.
+     *
+     * @return the listener that queues incoming messages
+     */
+    SerialPortMessageListener getMessageListener() {
+        return messageListener;
+    }
 
+    /**
+     * A class providing a message listener for the serial arduino
+     */
+    private final class ArduinoMessageListener implements SerialPortMessageListener {
         @Override
         public byte[] getMessageDelimiter() {
             return SerialUtil.END_MESSAGE_CHAR.getBytes(StandardCharsets.US_ASCII);
@@ -167,8 +326,12 @@ public class SerialArduino implements SerialDeviceInterface<byte[]> {
         @Override
         public void serialEvent(SerialPortEvent event) {
             byte[] delimitedMessage = event.getReceivedData();
-            serialArduino.setLastMessage(delimitedMessage);
-            serialArduino.setMessageAvailable(true);
+            // Only this thread adds frames, so one removal always makes room
+            while (!inbound.offer(delimitedMessage)) {
+                if (inbound.poll() != null) {
+                    framesDropped++;
+                }
+            }
         }
     }
 }
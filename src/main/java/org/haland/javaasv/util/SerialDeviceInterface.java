@@ -35,9 +35,20 @@ public interface SerialDeviceInterface<T> {
     int sendSerialData(byte[] serialData);
 
     /**
-     * Provides the last message received by the serial device
-     * @return The last message received
-     * @throws IOException if there is no exception available
+     * Sends the first <code>length</code> bytes of an array over the serial connection, so callers can reuse a buffer
+     *
+     * @param serialData <code>byte[]</code> array containing data to send
+     * @param length     the number of bytes to send
+     * @return the number of bytes actually sent (-1 if no bytes sent)
+     */
+    int sendSerialData(byte[] serialData, int length);
+
+    /**
+     * Provides a message received by the serial device. Devices that queue incoming messages, such as
+     * {@link SerialArduino}, take the oldest message not taken yet, so each message is returned once; others return
+     * the most recent message.
+     * @return The message received
+     * @throws IOException if the device cannot provide a message
      */
     T getLastMessage() throws IOException;
 }
@@ -1,5 +1,7 @@
 package org.haland.javaasv.util;
 
+import java.nio.ByteBuffer;
+
 /**
  * Utility functions for working with bytes
  */
@@ -13,4 +15,146 @@ public final class SerialUtil {
      * Character defining the end of a serial message
      */
     public static final String END_MESSAGE_CHAR = ">";
+
+    /**
+     * Byte defining the start of a serial message
+     */
+    public static final byte START_MESSAGE_BYTE = '<';
+
+    /**
+     * Byte defining the end of a serial message
+     */
+    public static final byte END_MESSAGE_BYTE = '>';
+
+    /**
+     * Byte separating values in a serial message
+     */
+    public static final byte VALUE_SEPARATOR_BYTE = ',';
+
+    // Values at or above this magnitude are written with Double.toString
+    private static final double MAX_FIXED_POINT_VALUE = 1e12;
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+
+    // CRC-16/CCITT-FALSE parameters
+    private static final int CRC16_POLYNOMIAL = 0x1021;
+    private static final int CRC16_INITIAL_VALUE = 0xFFFF;
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = ((crc & 0x8000) != 0) ? (crc << 1) ^ CRC16_POLYNOMIAL : crc << 1;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private SerialUtil() {
+        throw new AssertionError("utility class");
+    }
+
+    /**
+     * Calculates the CRC-16/CCITT-FALSE checksum of a range of bytes
+     *
+     * @param data   the data to checksum
+     * @param offset index of the first byte to include
+     * @param length number of bytes to include
+     * @return the checksum, between 0 and 0xFFFF
+     */
+    public static int crc16(byte[] data, int offset, int length) {
+        int crc = CRC16_INITIAL_VALUE;
+        for (int i = offset; i < offset + length; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * Writes a double to a buffer as ASCII with at most <code>maxDecimals</code> decimal places, without allocating.
+     * Trailing zeros are dropped, but at least one decimal place is always written, so values such as 0.75 and 25.0
+     * are written the same way as {@link Double#toString(double)} would.
+     *
+     * @param buffer      the buffer to write to
+     * @param value       the value to write
+     * @param maxDecimals the maximum number of decimal places to write, between 1 and 6
+     * @return the number of bytes written
+     */
+    public static int putFixedPoint(ByteBuffer buffer, double value, int maxDecimals) {
+        int start = buffer.position();
+        double magnitude = Math.abs(value);
+
+        // Fall back on the slow path for values we cannot represent
+        if (!(magnitude < MAX_FIXED_POINT_VALUE)) {
+            String text = Double.toString(value);
+            for (int i = 0; i < text.length(); i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+            return buffer.position() - start;
+        }
+
+        long scale = POWERS_OF_TEN[maxDecimals];
+        long scaled = Math.round(magnitude * scale);
+        if (value < 0 && scaled != 0) {
+            buffer.put((byte) '-');
+        }
+        putDigits(buffer, scaled / scale, 1);
+        buffer.put((byte) '.');
+
+        // Drop trailing zeros from the fraction, keeping at least one digit
+        long fraction = scaled % scale;
+        int decimals = maxDecimals;
+        while (decimals > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            decimals--;
+        }
+        putDigits(buffer, fraction, decimals);
+
+        return buffer.position() - start;
+    }
+
+    /**
+     * Writes a non-negative integer as ASCII digits, left-padded with zeros to <code>minDigits</code>
+     */
+    private static void putDigits(ByteBuffer buffer, long value, int minDigits) {
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= end - digits; i--) {
+            buffer.put(i, (byte) ('0' + (value % 10)));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Parses one value from a serial message of the form <code>&lt;a,b,...&gt;</code> without using regular
+     * expressions
+     *
+     * @param message the message to parse
+     * @param index   the index of the value to parse
+     * @return the value
+     * @throws NumberFormatException if the message does not contain a number at that index
+     */
+    public static double parseMessageValue(String message, int index) {
+        int start = message.indexOf(START_MESSAGE_CHAR) + 1;
+        for (int i = 0; i < index; i++) {
+            start = message.indexOf(VALUE_SEPARATOR_BYTE, start) + 1;
+            if (start == 0) {
+                throw new NumberFormatException("No value at index " + index + " in message " + message);
+            }
+        }
+
+        int end = start;
+        while (end < message.length() && message.charAt(end) != VALUE_SEPARATOR_BYTE
+                && message.charAt(end) != END_MESSAGE_BYTE) {
+            end++;
+        }
+        return Double.parseDouble(message.substring(start, end));
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MonotonicClock} that only moves when told to. Parking until a deadline advances the clock to the deadline
+ * immediately, so loops paced by this clock run as fast as they can compute while seeing the time they would have seen
+ * in real time.
+ */
+public class VirtualClock implements MonotonicClock {
+    private final AtomicLong now;
+
+    /**
+     * Constructs a clock starting at 0
+     */
+    public VirtualClock() {
+        this(0);
+    }
+
+    /**
+     * Constructs a clock starting at a given time
+     * @param startNanos the initial reading of the clock
+     */
+    public VirtualClock(long startNanos) {
+        now = new AtomicLong(startNanos);
+    }
+
+    @Override
+    public long nanoTime() {
+        return now.get();
+    }
+
+    @Override
+    public void parkUntil(long deadlineNanos) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        now.accumulateAndGet(deadlineNanos, Math::max);
+    }
+
+    /**
+     * Moves the clock forward
+     * @param duration the time to advance by, which must not be negative
+     * @param unit     the unit of <code>duration</code>
+     */
+    public void advance(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("A monotonic clock cannot go backwards");
+        }
+        now.addAndGet(unit.toNanos(duration));
+    }
+}
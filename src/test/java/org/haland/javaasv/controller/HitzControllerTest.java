@@ -1,8 +1,11 @@
 package org.haland.javaasv.controller;
 
 import org.haland.javaasv.TestBase;
+import org.haland.javaasv.util.VirtualClock;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class HitzControllerTest extends TestBase {
@@ -29,4 +32,21 @@ class HitzControllerTest extends TestBase {
         sut.setPeriod(PERIOD);
         assertEquals(EXPECTED_RESULT, sut.calculateNextOutput(XTD, HEADING_ERROR, THROTTLE), TOLERANCE);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testHitzControllerMeasuresTimeBetweenOutputs() {
+        VirtualClock clock = new VirtualClock();
+        sut = new HitzController(K_ph, K_px, K_ix);
+        sut.setClock(clock);
+        sut.start();
+
+        clock.advance(2, TimeUnit.SECONDS);
+        sut.calculateNextOutput(XTD, HEADING_ERROR, THROTTLE);
+        assertEquals(XTD * 2, sut.getTotalError(), TOLERANCE);
+
+        // Only the one second since the last output counts towards the integral
+        clock.advance(1, TimeUnit.SECONDS);
+        sut.calculateNextOutput(XTD, HEADING_ERROR, THROTTLE);
+        assertEquals(XTD * 2 + XTD + XTD, sut.getTotalError(), TOLERANCE);
+    }
+}
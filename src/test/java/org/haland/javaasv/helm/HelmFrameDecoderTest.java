@@ -0,0 +1,111 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.helm;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HelmFrameDecoderTest extends TestBase {
+    private static final double THROTTLE = 0.75;
+    private static final double RUDDER = -0.123;
+    private static final double TOLERANCE = 1.0 / HelmFrame.SETPOINT_SCALE;
+
+    private final HelmFrameDecoder sut = new HelmFrameDecoder();
+
+    private static byte[] encode(int sequence, double throttle, double rudder) {
+        ByteBuffer buffer = ByteBuffer.allocate(HelmFrame.FRAME_LENGTH);
+        HelmFrame.encode(buffer, HelmFrame.TYPE_SETPOINT, sequence, throttle, rudder);
+        return buffer.array();
+    }
+
+    @Test
+    void testRoundTrip() {
+        byte[] frame = encode(7, THROTTLE, RUDDER);
+
+        assertEquals(1, sut.accept(frame, 0, frame.length));
+        assertEquals(HelmFrame.TYPE_SETPOINT, sut.getType());
+        assertEquals(7, sut.getSequence());
+        assertEquals(THROTTLE, sut.getThrottle(), TOLERANCE);
+        assertEquals(RUDDER, sut.getRudder(), TOLERANCE);
+    }
+
+    @Test
+    void testSetpointsSaturate() {
+        byte[] frame = encode(0, 1000, -1000);
+
+        sut.accept(frame, 0, frame.length);
+        assertEquals(HelmFrame.fromFixedPoint(Short.MAX_VALUE), sut.getThrottle());
+        assertEquals(HelmFrame.fromFixedPoint(Short.MIN_VALUE), sut.getRudder());
+    }
+
+    @Test
+    void testCorruptedFrameIsRejected() {
+        byte[] frame = encode(1, THROTTLE, RUDDER);
+        frame[HelmFrame.RUDDER_OFFSET] ^= 0x10;
+
+        assertEquals(0, sut.accept(frame, 0, frame.length));
+        assertEquals(1, sut.getChecksumErrorCount());
+        assertEquals(0, sut.getFrameCount());
+    }
+
+    @Test
+    void testResynchronizesAfterCorruption() {
+        byte[] corrupted = encode(1, THROTTLE, RUDDER);
+        byte[] good = encode(2, -THROTTLE, -RUDDER);
+
+        // A frame truncated by a dropped byte, followed by noise and a good frame
+        ByteBuffer stream = ByteBuffer.allocate(64);
+        stream.put(corrupted, 0, HelmFrame.FRAME_LENGTH - 1);
+        stream.put(new byte[]{0x00, 0x13, 0x37});
+        stream.put(good);
+
+        assertEquals(1, sut.accept(stream.array(), 0, stream.position()));
+        assertEquals(2, sut.getSequence());
+        assertEquals(-THROTTLE, sut.getThrottle(), TOLERANCE);
+        assertEquals(-RUDDER, sut.getRudder(), TOLERANCE);
+        assertTrue(sut.getChecksumErrorCount() >= 1);
+    }
+
+    @Test
+    void testLostFramesAreCounted() {
+        byte[] first = encode(254, THROTTLE, RUDDER);
+        byte[] second = encode(257, THROTTLE, RUDDER);
+
+        sut.accept(first, 0, first.length);
+        sut.accept(second, 0, second.length);
+        assertEquals(2, sut.getLostFrameCount());
+    }
+
+    @Test
+    void testDuplicateFrameIsNotCountedAsLost() {
+        byte[] first = encode(10, THROTTLE, RUDDER);
+        byte[] next = encode(11, -THROTTLE, -RUDDER);
+
+        assertEquals(1, sut.accept(first, 0, first.length));
+        assertEquals(0, sut.accept(first, 0, first.length));
+        assertEquals(1, sut.accept(next, 0, next.length));
+        assertEquals(0, sut.getLostFrameCount());
+        assertEquals(1, sut.getDuplicateFrameCount());
+        assertEquals(2, sut.getFrameCount());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoundedMailboxTest extends TestBase {
+    private static final String CLIENT_ID = "mailboxClient";
+    private static final int CAPACITY = 2;
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    private final MessengerClientInterface client = new MessengerClientInterface() {
+        @Override
+        public void dispatch(MessageInterface message) {
+            try {
+                received.add(message.getMessageContents().getStringMessage());
+            } catch (MessageTypeException e) {
+                e.printStackTrace();
+            }
+        }
+
+        @Override
+        public String getClientID() {
+            return CLIENT_ID;
+        }
+
+        @Override
+        public MessageInterface.MessageType getClientType() {
+            return MessageInterface.MessageType.STRING;
+        }
+    };
+
+    private BoundedMailbox sut;
+
+    @AfterEach
+    void teardownMailbox() {
+        sut.stop();
+    }
+
+    private static MessageInterface createMessage(String content) throws MessageTypeException {
+        return createMessage(content, MessageInterface.MessagePriority.NORMAL);
+    }
+
+    private static MessageInterface createMessage(String content, MessageInterface.MessagePriority priority)
+            throws MessageTypeException {
+        return new SimpleMessage(null, CLIENT_ID, System.currentTimeMillis(), priority,
+                new MessageContent(content, null, null));
+    }
+
+    /**
+     * Offers three messages to a full mailbox before its worker starts, then waits for delivery
+     */
+    private void offerThreeAndDeliver(int expectedDelivered) throws MessageTypeException {
+        sut.offer(createMessage("first"));
+        sut.offer(createMessage("second"));
+        sut.offer(createMessage("third"));
+        sut.start();
+        await().until(() -> received.size() == expectedDelivered);
+    }
+
+    @Test
+    void testDropOldest() throws MessageTypeException {
+        sut = new BoundedMailbox(CLIENT_ID, client, CAPACITY, OverflowPolicy.DROP_OLDEST);
+        offerThreeAndDeliver(CAPACITY);
+
+        assertEquals(List.of("second", "third"), received);
+        assertEquals(1, sut.getDroppedCount());
+    }
+
+    @Test
+    void testDropNewest() throws MessageTypeException {
+        sut = new BoundedMailbox(CLIENT_ID, client, CAPACITY, OverflowPolicy.DROP_NEWEST);
+        offerThreeAndDeliver(CAPACITY);
+
+        assertEquals(List.of("first", "second"), received);
+        assertEquals(1, sut.getDroppedCount());
+    }
+
+    @Test
+    void testUrgentMessageDeliveredFirstAndKeptOnOverflow() throws MessageTypeException {
+        sut = new BoundedMailbox(CLIENT_ID, client, CAPACITY, OverflowPolicy.DROP_OLDEST);
+        sut.offer(createMessage("first"));
+        sut.offer(createMessage("urgent", MessageInterface.MessagePriority.HIGH));
+        sut.offer(createMessage("second"));
+        sut.offer(createMessage("third"));
+        sut.start();
+        await().until(() -> received.size() == CAPACITY);
+
+        assertEquals(List.of("urgent", "third"), received);
+        assertEquals(2, sut.getDroppedCount());
+    }
+
+    @Test
+    void testDropOldestKeepsHigherPriority() throws MessageTypeException {
+        sut = new BoundedMailbox(CLIENT_ID, client, CAPACITY, OverflowPolicy.DROP_OLDEST);
+        sut.offer(createMessage("first"));
+        sut.offer(createMessage("second"));
+        sut.offer(createMessage("low", MessageInterface.MessagePriority.LOW));
+        sut.start();
+        await().until(() -> received.size() == CAPACITY);
+
+        assertEquals(List.of("first", "second"), received);
+        assertEquals(1, sut.getDroppedCount());
+    }
+
+    @Test
+    void testDropNewestKeepsUrgentMessage() throws MessageTypeException {
+        sut = new BoundedMailbox(CLIENT_ID, client, CAPACITY, OverflowPolicy.DROP_NEWEST);
+        sut.offer(createMessage("first"));
+        sut.offer(createMessage("second"));
+        sut.offer(createMessage("urgent", MessageInterface.MessagePriority.CRITICAL));
+        sut.start();
+        await().until(() -> received.size() == CAPACITY);
+
+        assertEquals(List.of("urgent", "second"), received);
+        assertEquals(1, sut.getDroppedCount());
+    }
+
+    @Test
+    void testUrgentMessagesExceedCapacity() throws MessageTypeException {
+        sut = new BoundedMailbox(CLIENT_ID, client, CAPACITY, OverflowPolicy.DROP_OLDEST);
+        sut.offer(createMessage("first", MessageInterface.MessagePriority.HIGH));
+        sut.offer(createMessage("second", MessageInterface.MessagePriority.HIGH));
+        sut.offer(createMessage("third", MessageInterface.MessagePriority.HIGH));
+        sut.start();
+        await().until(() -> received.size() == 3);
+
+        assertEquals(List.of("first", "second", "third"), received);
+        assertEquals(0, sut.getDroppedCount());
+    }
+
+    @Test
+    void testBlockWaitsForRoom() throws MessageTypeException, InterruptedException {
+        sut = new BoundedMailbox(CLIENT_ID, client, CAPACITY, OverflowPolicy.BLOCK);
+        sut.offer(createMessage("first"));
+        sut.offer(createMessage("second"));
+
+        // The third offer blocks until the worker makes room
+        Thread producer = new Thread(() -> {
+            try {
+                sut.offer(createMessage("third"));
+            } catch (MessageTypeException e) {
+                e.printStackTrace();
+            }
+        });
+        producer.start();
+        sut.start();
+        producer.join(1000);
+
+        await().until(() -> received.size() == 3);
+        assertEquals(List.of("first", "second", "third"), received);
+        assertEquals(0, sut.getDroppedCount());
+    }
+}
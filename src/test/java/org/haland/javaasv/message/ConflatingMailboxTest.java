@@ -0,0 +1,88 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConflatingMailboxTest extends TestBase {
+    private static final String CLIENT_ID = "helmClient";
+    private static final String PILOT_ID = "pilot";
+    private static final String OTHER_ID = "other";
+
+    private final List<MessageInterface> received = new CopyOnWriteArrayList<>();
+
+    private final MessengerClientInterface client = new MessengerClientInterface() {
+        @Override
+        public void dispatch(MessageInterface message) {
+            received.add(message);
+        }
+
+        @Override
+        public String getClientID() {
+            return CLIENT_ID;
+        }
+
+        @Override
+        public MessageInterface.MessageType getClientType() {
+            return MessageInterface.MessageType.HELM;
+        }
+    };
+
+    private final ConflatingMailbox sut = new ConflatingMailbox(CLIENT_ID, client);
+
+    @AfterEach
+    void teardownMailbox() {
+        sut.stop();
+    }
+
+    @Test
+    void testOnlyNewestMessagePerOriginIsDelivered() throws MessageTypeException {
+        // Build up a backlog of stale setpoints before the worker starts
+        sut.offer(new HelmMessage(PILOT_ID, CLIENT_ID, 0, MessageInterface.MessagePriority.NORMAL, 0.1, 0.1));
+        sut.offer(new HelmMessage(OTHER_ID, CLIENT_ID, 1, MessageInterface.MessagePriority.NORMAL, 0.5, 0.5));
+        sut.offer(new HelmMessage(PILOT_ID, CLIENT_ID, 2, MessageInterface.MessagePriority.NORMAL, 0.2, 0.2));
+        sut.offer(new HelmMessage(PILOT_ID, CLIENT_ID, 3, MessageInterface.MessagePriority.NORMAL, 0.3, 0.3));
+        sut.start();
+
+        await().until(() -> received.size() == 2);
+        assertEquals(PILOT_ID, received.get(0).getOriginID());
+        assertEquals(3, received.get(0).getCreationTime());
+        assertEquals(OTHER_ID, received.get(1).getOriginID());
+        assertEquals(2, sut.getDroppedCount());
+    }
+
+    @Test
+    void testMessagesAfterDeliveryAreNotLost() throws MessageTypeException {
+        sut.start();
+        sut.offer(new HelmMessage(PILOT_ID, CLIENT_ID, 0, MessageInterface.MessagePriority.NORMAL, 0.1, 0.1));
+        await().until(() -> received.size() == 1);
+
+        sut.offer(new HelmMessage(PILOT_ID, CLIENT_ID, 1, MessageInterface.MessagePriority.NORMAL, 0.2, 0.2));
+        await().until(() -> received.size() == 2);
+        assertEquals(1, received.get(1).getCreationTime());
+    }
+}
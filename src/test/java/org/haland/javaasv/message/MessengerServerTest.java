@@ -29,6 +29,7 @@ import org.mockito.Mockito;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -110,16 +111,16 @@ class MessengerServerTest extends TestBase {
         testServer.dispatch(spyMessage1);
         testServer.dispatch(spyMessage2);
 
-        // Distribute
+        // Distribute. Each client receives its message on its own mailbox worker.
         testServer.run();
 
         ArgumentCaptor<MessageInterface> captor1 = ArgumentCaptor.forClass(MessageInterface.class);
-        verify(spyClient1).dispatch(captor1.capture());
+        verify(spyClient1, timeout(1000)).dispatch(captor1.capture());
         MessageInterface dispatchedMessage1 = captor1.getValue();
         assertEquals(dispatchedMessage1.getMessageContents().getStringMessage(), STRING_MESSAGE_CONTENT);
 
         ArgumentCaptor<MessageInterface> captor2 = ArgumentCaptor.forClass(MessageInterface.class);
-        verify(spyClient2).dispatch(captor2.capture());
+        verify(spyClient2, timeout(1000)).dispatch(captor2.capture());
         MessageInterface dispatchedMessage2 = captor2.getValue();
         assertEquals(dispatchedMessage2.getMessageContents().getDoubleMessage(), DOUBLE_MESSAGE_CONTENT);
     }
@@ -0,0 +1,87 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.message;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityMessageQueueTest extends TestBase {
+    private static final int STARVATION_LIMIT = 3;
+
+    private final PriorityMessageQueue sut = new PriorityMessageQueue(STARVATION_LIMIT);
+
+    private static MessageInterface createMessage(String content, MessageInterface.MessagePriority priority)
+            throws MessageTypeException {
+        return new SimpleMessage(null, null, System.currentTimeMillis(), priority,
+                new MessageContent(content, null, null));
+    }
+
+    @Test
+    void testUrgentMessagesDrainFirst() throws MessageTypeException {
+        sut.offer(createMessage("low", MessageInterface.MessagePriority.LOW));
+        sut.offer(createMessage("normal", MessageInterface.MessagePriority.NORMAL));
+        sut.offer(createMessage("high", MessageInterface.MessagePriority.HIGH));
+        sut.offer(createMessage("critical", MessageInterface.MessagePriority.CRITICAL));
+
+        assertEquals("critical", sut.poll().getMessageContents().getStringMessage());
+        assertEquals("high", sut.poll().getMessageContents().getStringMessage());
+        assertEquals("normal", sut.poll().getMessageContents().getStringMessage());
+        assertEquals("low", sut.poll().getMessageContents().getStringMessage());
+        assertNull(sut.poll());
+        assertTrue(sut.isEmpty());
+    }
+
+    @Test
+    void testEqualPriorityIsFifo() throws MessageTypeException {
+        sut.offer(createMessage("first", null));
+        sut.offer(createMessage("second", MessageInterface.MessagePriority.NORMAL));
+
+        assertEquals("first", sut.poll().getMessageContents().getStringMessage());
+        assertEquals("second", sut.poll().getMessageContents().getStringMessage());
+    }
+
+    @Test
+    void testLowPriorityIsNotStarved() throws MessageTypeException {
+        sut.offer(createMessage("low", MessageInterface.MessagePriority.LOW));
+        for (int i = 0; i < 2 * STARVATION_LIMIT; i++) {
+            sut.offer(createMessage("normal", MessageInterface.MessagePriority.NORMAL));
+        }
+
+        // The low message should be delivered once it has been passed over STARVATION_LIMIT times
+        for (int i = 0; i < STARVATION_LIMIT; i++) {
+            assertEquals("normal", sut.poll().getMessageContents().getStringMessage());
+        }
+        assertEquals("low", sut.poll().getMessageContents().getStringMessage());
+    }
+
+    @Test
+    void testStarvationDoesNotDelayUrgentMessages() throws MessageTypeException {
+        sut.offer(createMessage("low", MessageInterface.MessagePriority.LOW));
+        for (int i = 0; i < STARVATION_LIMIT; i++) {
+            sut.offer(createMessage("normal", MessageInterface.MessagePriority.NORMAL));
+            sut.poll();
+        }
+        sut.offer(createMessage("critical", MessageInterface.MessagePriority.CRITICAL));
+
+        assertEquals("critical", sut.poll().getMessageContents().getStringMessage());
+        assertEquals("low", sut.poll().getMessageContents().getStringMessage());
+    }
+}
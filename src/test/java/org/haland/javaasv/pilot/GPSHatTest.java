@@ -0,0 +1,37 @@
+package org.haland.javaasv.pilot;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GPSHatTest extends TestBase {
+    @Test
+    void testPmtkCommand() {
+        assertEquals("AT+CGNSCMD=0,\"$PMTK220,100*2F\"\n", GPSHat.pmtkCommand("PMTK220,100"));
+        assertEquals("AT+CGNSCMD=0,\"$PMTK353,1,1,0,0,0*2B\"\n", GPSHat.pmtkCommand("PMTK353,1,1,0,0,0"));
+    }
+
+    @Test
+    void testLateReplyIsNotTakenForNextCommand() {
+        GPSHat.PendingCommand sut = new GPSHat.PendingCommand(GPSHat.START_GPS_MESSAGE, true, null);
+
+        // An OK for an earlier command that timed out, arriving before this command's echo
+        assertFalse(sut.accept(GPSHat.ACK_OK));
+        assertNull(sut.getReply());
+
+        assertFalse(sut.accept(GPSHat.START_GPS_MESSAGE.strip()));
+        assertTrue(sut.accept("+CME ERROR: 3"));
+        assertEquals("+CME ERROR: 3", sut.getReply());
+        assertFalse(sut.accept(GPSHat.ACK_OK));
+    }
+
+    @Test
+    void testReplyWithoutEcho() {
+        GPSHat.PendingCommand sut = new GPSHat.PendingCommand(GPSHat.ATTENTION_MESSAGE, false, null);
+
+        assertFalse(sut.accept("SMS Ready"));
+        assertTrue(sut.accept(GPSHat.ACK_OK));
+        assertEquals(GPSHat.ACK_OK, sut.getReply());
+    }
+}
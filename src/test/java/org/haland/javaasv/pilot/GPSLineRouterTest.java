@@ -0,0 +1,103 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.pilot;
+
+import org.haland.javaasv.TestBase;
+import org.haland.javaasv.util.ByteRingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GPSLineRouterTest extends TestBase {
+    private static final String RMC = "$GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*6A\r\n";
+    private static final String GGA = "$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47\r\n";
+
+    private static final int MAX_REPLY_LENGTH = 32;
+
+    private final ByteRingBuffer ring = new ByteRingBuffer(1024);
+    private final List<String> replies = new ArrayList<>();
+    private final GPSLineRouter sut = new GPSLineRouter(ring, MAX_REPLY_LENGTH, replies::add);
+
+    private void route(String data) {
+        byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+        sut.route(bytes, 0, bytes.length);
+    }
+
+    private String drain() {
+        byte[] out = new byte[ring.capacity()];
+        int count = ring.read(out, 0, out.length);
+        return new String(out, 0, count, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void testLinesSplitAcrossChunks() {
+        String stream = RMC + "OK\r\n" + GGA;
+
+        // Feed the stream in every chunk size, so each line is split at every possible point
+        for (int chunkSize = 1; chunkSize <= stream.length(); chunkSize++) {
+            replies.clear();
+            for (int i = 0; i < stream.length(); i += chunkSize) {
+                route(stream.substring(i, Math.min(stream.length(), i + chunkSize)));
+            }
+            assertEquals(RMC + GGA, drain(), "chunk size " + chunkSize);
+            assertEquals(List.of("OK"), replies, "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void testRepliesInterleavedWithSentences() {
+        route(GGA + "AT+CGNSPWR=1\r\n\r\nOK\r\n" + RMC + "AT+CGPSOUT=98\r\n+CME ERROR: 3\r\n" + GGA);
+
+        assertEquals(GGA + RMC + GGA, drain());
+        assertEquals(List.of("AT+CGNSPWR=1", "OK", "AT+CGPSOUT=98", "+CME ERROR: 3"), replies);
+    }
+
+    @Test
+    void testLongReplyIsCut() {
+        String command = GPSHat.pmtkCommand("PMTK353,1,1,0,0,0").strip();
+        route(command + "\r\nOK\r\n");
+
+        // The echo is longer than a reply can be, and its embedded $ does not make it a sentence
+        assertEquals(List.of(command.substring(0, MAX_REPLY_LENGTH), "OK"), replies);
+        assertEquals("", drain());
+    }
+
+    @Test
+    void testOverflowIsCounted() {
+        int sentences = ring.capacity() / RMC.length() + 1;
+        for (int i = 0; i < sentences; i++) {
+            route(RMC);
+        }
+        route("OK\r\n");
+
+        assertEquals((long) sentences * RMC.length() - ring.capacity(), sut.getBytesDropped());
+        assertEquals(ring.capacity(), sut.getHighWaterMark());
+        assertEquals(List.of("OK"), replies);
+
+        // Once the reader catches up, new sentences fit again
+        drain();
+        route(GGA);
+        assertEquals(GGA, drain());
+        assertEquals((long) sentences * RMC.length() - ring.capacity(), sut.getBytesDropped());
+    }
+}
@@ -0,0 +1,63 @@
+package org.haland.javaasv.pilot;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GPSSnapshotPublisherTest extends TestBase {
+    private static final int UPDATES = 2_000_000;
+
+    @Test
+    void testReadPublished() {
+        GPSSnapshotPublisher sut = new GPSSnapshotPublisher();
+        GPSSnapshot snapshot = new GPSSnapshot();
+        sut.read(snapshot);
+        assertFalse(snapshot.hasFix());
+        assertEquals(-1, snapshot.getUpdateTime());
+
+        sut.publish(true, 44.9187, -92.8435, 90, 5, 1000);
+        sut.read(snapshot);
+        assertTrue(snapshot.hasFix());
+        assertEquals(44.9187, snapshot.getLatitude());
+        assertEquals(-92.8435, snapshot.getLongitude());
+        assertEquals(90, snapshot.getHeading());
+        assertEquals(5, snapshot.getSpeed());
+        assertEquals(1000, snapshot.getUpdateTime());
+        assertEquals(1, sut.getPublishCount());
+    }
+
+    @Test
+    void testReadersNeverSeeMixedUpdates() throws InterruptedException {
+        GPSSnapshotPublisher sut = new GPSSnapshotPublisher();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong tornReads = new AtomicLong();
+
+        Thread reader = new Thread(() -> {
+            GPSSnapshot snapshot = new GPSSnapshot();
+            while (!done.get()) {
+                sut.read(snapshot);
+                // Every value of one update is the same number
+                double value = snapshot.getLatitude();
+                if (snapshot.getUpdateTime() >= 0 && (snapshot.getLongitude() != value
+                        || snapshot.getHeading() != value || snapshot.getSpeed() != value
+                        || snapshot.getUpdateTime() != (long) value || snapshot.hasFix() != (value % 2 == 0))) {
+                    tornReads.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < UPDATES; i++) {
+            sut.publish(i % 2 == 0, i, i, i, i, i);
+        }
+        done.set(true);
+        reader.join();
+
+        assertEquals(0, tornReads.get());
+        assertEquals(UPDATES, sut.getPublishCount());
+    }
+}
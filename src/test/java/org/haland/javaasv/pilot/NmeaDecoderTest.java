@@ -0,0 +1,120 @@
+package org.haland.javaasv.pilot;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NmeaDecoderTest extends TestBase {
+    private static final String RMC = "$GPRMC,123519.50,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*41\r\n";
+    private static final String RMC_WEST = "$GNRMC,001122.00,A,4455.1220,N,09250.6100,W,0.5,,181026,,,A*7D\r\n";
+    private static final String RMC_VOID = "$GPRMC,235959.00,V,,,,,,,181026,,,N*70\r\n";
+    private static final String GGA = "$GPGGA,123519,4807.038,S,01131.000,W,1,08,0.9,545.4,M,46.9,M,,*48\r\n";
+    private static final String VTG = "$GPVTG,054.7,T,034.4,M,005.5,N,010.2,K,A*25\r\n";
+    private static final String GSV = "$GPGSV,3,1,11,03,03,111,00,04,15,270,00,06,01,010,00,13,06,292,00*74\r\n";
+
+    private static final double TOLERANCE = 1e-9;
+
+    private List<NmeaDecoder.SentenceType> decoded;
+    private NmeaDecoder sut;
+
+    @BeforeEach
+    void setupDecoder() {
+        decoded = new ArrayList<>();
+        sut = new NmeaDecoder((type, decoder) -> decoded.add(type));
+    }
+
+    private void feed(String data) {
+        byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+        sut.accept(bytes, 0, bytes.length);
+    }
+
+    @Test
+    void testDecodeRMC() {
+        feed(RMC);
+        assertEquals(List.of(NmeaDecoder.SentenceType.RMC), decoded);
+        assertTrue(sut.isActive());
+        assertEquals(((12 * 60 + 35) * 60 + 19) * 1000 + 500, sut.getTimeOfDay());
+        assertEquals(48 + 7.038 / 60, sut.getLatitude(), TOLERANCE);
+        assertEquals(11 + 31.0 / 60, sut.getLongitude(), TOLERANCE);
+        assertEquals(22.4, sut.getSpeed(), TOLERANCE);
+        assertEquals(84.4, sut.getCourse(), TOLERANCE);
+    }
+
+    @Test
+    void testDecodeWesternHemisphereAndEmptyCourse() {
+        feed(RMC_WEST);
+        assertEquals(44 + 55.122 / 60, sut.getLatitude(), TOLERANCE);
+        assertEquals(-(92 + 50.61 / 60), sut.getLongitude(), TOLERANCE);
+        assertEquals(0.5, sut.getSpeed(), TOLERANCE);
+        assertTrue(Double.isNaN(sut.getCourse()));
+    }
+
+    @Test
+    void testDecodeVoidRMC() {
+        feed(RMC_VOID);
+        assertEquals(1, decoded.size());
+        assertFalse(sut.isActive());
+        assertTrue(Double.isNaN(sut.getLatitude()));
+        assertTrue(Double.isNaN(sut.getLongitude()));
+    }
+
+    @Test
+    void testDecodeGGA() {
+        feed(GGA);
+        assertEquals(List.of(NmeaDecoder.SentenceType.GGA), decoded);
+        assertEquals(-(48 + 7.038 / 60), sut.getLatitude(), TOLERANCE);
+        assertEquals(-(11 + 31.0 / 60), sut.getLongitude(), TOLERANCE);
+        assertEquals(1, sut.getFixQuality());
+        assertEquals(8, sut.getSatellites());
+        assertEquals(0.9, sut.getHdop(), TOLERANCE);
+        assertEquals(545.4, sut.getAltitude(), TOLERANCE);
+    }
+
+    @Test
+    void testDecodeVTG() {
+        feed(VTG);
+        assertEquals(List.of(NmeaDecoder.SentenceType.VTG), decoded);
+        assertEquals(54.7, sut.getCourse(), TOLERANCE);
+        assertEquals(5.5, sut.getSpeed(), TOLERANCE);
+    }
+
+    @Test
+    void testSkipsOtherSentences() {
+        feed(GSV + "OK\r\n" + RMC);
+        assertEquals(List.of(NmeaDecoder.SentenceType.RMC), decoded);
+        assertEquals(2, sut.getSentenceCount());
+        assertEquals(0, sut.getChecksumErrorCount());
+    }
+
+    @Test
+    void testRejectsBadChecksum() {
+        feed(RMC.replace("*41", "*42"));
+        feed(RMC.replace("*41", ""));
+        feed(RMC.replace("4807.038", "4807.039"));
+        assertTrue(decoded.isEmpty());
+        assertEquals(3, sut.getChecksumErrorCount());
+    }
+
+    @Test
+    void testSentenceSplitAcrossReads() {
+        String data = GGA + RMC;
+        for (int i = 0; i < data.length(); i += 7) {
+            feed(data.substring(i, Math.min(i + 7, data.length())));
+        }
+        assertEquals(List.of(NmeaDecoder.SentenceType.GGA, NmeaDecoder.SentenceType.RMC), decoded);
+    }
+
+    @Test
+    void testTruncatedSentenceIsDiscarded() {
+        // The receiver restarted mid-sentence
+        feed(RMC.substring(0, 30) + RMC);
+        assertEquals(List.of(NmeaDecoder.SentenceType.RMC), decoded);
+        assertEquals(0, sut.getChecksumErrorCount());
+    }
+}
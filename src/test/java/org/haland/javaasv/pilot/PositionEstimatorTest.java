@@ -0,0 +1,143 @@
+package org.haland.javaasv.pilot;
+
+import net.sf.marineapi.nmea.util.Time;
+import org.haland.javaasv.TestBase;
+import org.haland.javaasv.util.EarthRadius;
+import org.haland.javaasv.util.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PositionEstimatorTest extends TestBase {
+    private static final double LATITUDE = 44.9187;
+    private static final double LONGITUDE = -92.8435;
+    private static final double SPEED_KNOTS = 10;
+    private static final double SPEED_METERS_PER_SECOND = SPEED_KNOTS * 1852 / 3600;
+    private static final double METERS_PER_DEGREE = Math.toRadians(EarthRadius.METERS.getValue());
+    private static final double TOLERANCE_METERS = 0.01;
+
+    private VirtualClock clock;
+    private FakeGPS gps;
+    private PositionEstimator sut;
+
+    @BeforeEach
+    void setupEstimator() {
+        clock = new VirtualClock();
+        gps = new FakeGPS();
+        sut = new PositionEstimator(gps, clock);
+    }
+
+    @Test
+    void testPassesThroughBeforeFix() {
+        gps.fix = false;
+        assertEquals(LATITUDE, sut.getLatitude());
+        assertEquals(LONGITUDE, sut.getLongitude());
+    }
+
+    @Test
+    void testExtrapolatesBetweenFixes() {
+        gps.setFix(LATITUDE, LONGITUDE, 0, 0);
+        assertEquals(LATITUDE, sut.getLatitude(), 1e-12);
+
+        // Half a second at 10 knots north
+        clock.advance(500, TimeUnit.MILLISECONDS);
+        double expectedLatitude = LATITUDE + SPEED_METERS_PER_SECOND * 0.5 / METERS_PER_DEGREE;
+        assertEquals(expectedLatitude, sut.getLatitude(), TOLERANCE_METERS / METERS_PER_DEGREE);
+        assertEquals(LONGITUDE, sut.getLongitude(), 1e-12);
+        assertEquals(0, sut.getHeading(), 1e-9);
+        assertEquals(SPEED_KNOTS, sut.getSpeed(), 1e-9);
+    }
+
+    @Test
+    void testConsistentFixesTrackMotion() {
+        double metersPerDegreeLongitude = METERS_PER_DEGREE * Math.cos(Math.toRadians(LATITUDE));
+        double longitude = LONGITUDE;
+        for (int second = 0; second < 10; second++) {
+            gps.setFix(LATITUDE, longitude, 90, second);
+            sut.getLongitude();
+            clock.advance(1, TimeUnit.SECONDS);
+            longitude += SPEED_METERS_PER_SECOND / metersPerDegreeLongitude;
+        }
+
+        // A second after the last fix the estimate should be where the next fix would be
+        double[] coordinates = sut.getCoordinates();
+        assertEquals(LATITUDE, coordinates[0], TOLERANCE_METERS / METERS_PER_DEGREE);
+        assertEquals(longitude, coordinates[1], TOLERANCE_METERS / metersPerDegreeLongitude);
+        assertEquals(90, sut.getHeading(), 1e-6);
+    }
+
+    @Test
+    void testExtrapolationIsLimited() {
+        gps.setFix(LATITUDE, LONGITUDE, 0, 0);
+        sut.getLatitude();
+
+        clock.advance(PositionEstimator.DEFAULT_MAX_EXTRAPOLATION * 10, TimeUnit.MILLISECONDS);
+        double maxDistance = SPEED_METERS_PER_SECOND * PositionEstimator.DEFAULT_MAX_EXTRAPOLATION / 1000;
+        assertEquals(LATITUDE + maxDistance / METERS_PER_DEGREE, sut.getLatitude(),
+                TOLERANCE_METERS / METERS_PER_DEGREE);
+    }
+
+    /**
+     * A GPS whose fix is set by the test
+     */
+    private static class FakeGPS implements GPSProviderInterface {
+        private boolean fix = true;
+        private Time time = new Time(0, 0, 0);
+        private double latitude = LATITUDE;
+        private double longitude = LONGITUDE;
+        private double heading;
+        private double speed = SPEED_KNOTS;
+
+        void setFix(double latitude, double longitude, double heading, int second) {
+            this.fix = true;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.heading = heading;
+            this.time = new Time(12, 0, second);
+        }
+
+        @Override
+        public boolean getFixStatus() {
+            return fix;
+        }
+
+        @Override
+        public CompletableFuture<Void> getFirstFix() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public Time getUpdateTime() {
+            return time;
+        }
+
+        @Override
+        public double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public double getLongitude() {
+            return longitude;
+        }
+
+        @Override
+        public double[] getCoordinates() {
+            return new double[]{latitude, longitude};
+        }
+
+        @Override
+        public double getHeading() {
+            return heading;
+        }
+
+        @Override
+        public double getSpeed() {
+            return speed;
+        }
+    }
+}
@@ -22,7 +22,12 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.tinylog.Logger;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,7 +47,9 @@ class SimplePilotTest extends TestBase {
     @Mock
     private HelmInterface mockHelm;
     private GPSProviderInterface mockGPSProvider;
-    private SegmentedRoute route;
+    private volatile boolean gpsFix;
+    private CompletableFuture<Void> gpsFirstFix;
+    private ColumnarRoute route;
 
     @BeforeEach
     void setupPilot() {
@@ -54,12 +61,19 @@ class SimplePilotTest extends TestBase {
         routeConfig.setRouteType(RouteType.FILE);
         AllConfig allConfig = new AllConfig(routeConfig);
         RouteParser parser = new RouteParser(allConfig);
-        route = (SegmentedRoute) parser.getRoute();
+        route = (ColumnarRoute) parser.getRoute();
 
+        gpsFix = true;
+        gpsFirstFix = CompletableFuture.completedFuture(null);
         mockGPSProvider = new GPSProviderInterface() {
             @Override
             public boolean getFixStatus() {
-                return true;
+                return gpsFix;
+            }
+
+            @Override
+            public CompletableFuture<Void> getFirstFix() {
+                return gpsFirstFix;
             }
 
             @Override
@@ -86,11 +100,16 @@ class SimplePilotTest extends TestBase {
             public double getHeading() {
                 return 0;
             }
+
+            @Override
+            public double getSpeed() {
+                return 0;
+            }
         };
 
         testPilot =
                 new SimplePilot(PILOT_ID, mockServer, mockHelm, controller, controller, mockGPSProvider);
-        testPilot.setCurrentRoute(new SegmentedRoute((SegmentedRoute) route));
+        testPilot.setCurrentRoute(new ColumnarRoute(route));
     }
 
     @AfterEach
@@ -110,6 +129,49 @@ class SimplePilotTest extends TestBase {
         testPilot.stopPilot();
     }
 
+    @Test
+    void testStartOnFirstFix() throws Exception {
+        gpsFix = false;
+        gpsFirstFix = new CompletableFuture<>();
+
+        CompletableFuture<Void> started = testPilot.startPilot(10, 5000);
+        assertFalse(started.isDone());
+        verify(mockServer, never()).dispatch(any());
+
+        // The pilot should start from the thread that reports the fix
+        gpsFix = true;
+        gpsFirstFix.complete(null);
+        assertTrue(started.isDone());
+        started.get();
+
+        verify(mockServer, timeout(1000).atLeastOnce()).dispatch(any(HelmMessage.class));
+        testPilot.stopPilot();
+    }
+
+    @Test
+    void testFixTimeout() {
+        gpsFix = false;
+        gpsFirstFix = new CompletableFuture<>();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> testPilot.startPilot(10, 50).get());
+        assertTrue(e.getCause() instanceof TimeoutException);
+        // The provider's future is left for other waiters
+        assertFalse(gpsFirstFix.isDone());
+        verify(mockServer, never()).dispatch(any());
+    }
+
+    @Test
+    void testStartRejoinsRoute() {
+        // The route is loaded further along than the ASV, which is at the end of the first segment
+        IndexedRouteInterface pilotRoute = (IndexedRouteInterface) testPilot.getCurrentRoute();
+        pilotRoute.setCurrentIndex(2);
+
+        // Progress never moves backwards, so only a rejoin can bring the route back to the second segment
+        testPilot.startPilot(10);
+        await().until(() -> pilotRoute.getCurrentIndex() == 1);
+        testPilot.stopPilot();
+    }
+
     @Test
     void testAdvanceWaypoint() throws RouteEndException {
         // Make sure we start at the same point
@@ -124,7 +186,7 @@ class SimplePilotTest extends TestBase {
 
         // Make sure we end on the final waypoint
         assertTrue(WaypointInterface.equals(testPilot.getCurrentRoute().getNextWaypoint(),
-                route.getWaypoint(route.getRouteLength() - 1)));
+                route.getSegment(route.getSegmentCount() - 1).getEndWaypoint()));
 
 
     }
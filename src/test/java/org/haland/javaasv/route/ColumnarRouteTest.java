@@ -0,0 +1,82 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarRouteTest extends TestBase {
+    private static final int WAYPOINT_COUNT = 5;
+
+    private SegmentedRoute segmentedRoute;
+    private ColumnarRoute sut;
+
+    @BeforeEach
+    void setupRoutes() {
+        WaypointColumns columns = new WaypointColumns();
+        segmentedRoute = new SegmentedRoute();
+        for (int i = 0; i < WAYPOINT_COUNT; i++) {
+            WaypointInterface.WaypointBehavior behavior = i == WAYPOINT_COUNT - 1
+                    ? WaypointInterface.WaypointBehavior.LOITER : WaypointInterface.WaypointBehavior.NEXT_WAYPOINT;
+            columns.add(44.9187, -92.8435 - i * 0.0004, 0.0001, behavior);
+            segmentedRoute.addWaypoint(new Waypoint(44.9187, -92.8435 - i * 0.0004, 0.0001, behavior));
+        }
+        sut = new ColumnarRoute(columns);
+    }
+
+    @Test
+    void testMatchesSegmentedRoute() throws RouteEndException {
+        assertEquals(segmentedRoute.getSegmentCount(), sut.getSegmentCount());
+        for (int i = 0; i < sut.getSegmentCount(); i++) {
+            assertTrue(WaypointInterface.equals(segmentedRoute.getPreviousWaypoint(), sut.getPreviousWaypoint()));
+            assertTrue(WaypointInterface.equals(segmentedRoute.getNextWaypoint(), sut.getNextWaypoint()));
+            assertEquals(segmentedRoute.getCurrentSegment().getBearing(), sut.getCurrentSegment().getBearing());
+            assertEquals(segmentedRoute.isComplete(), sut.isComplete());
+            if (!sut.isComplete()) {
+                segmentedRoute.advanceWaypoint();
+                sut.advanceWaypoint();
+            }
+        }
+        assertThrows(RouteEndException.class, sut::advanceWaypoint);
+        assertEquals(WaypointInterface.WaypointBehavior.LOITER, sut.getBehavior(WAYPOINT_COUNT - 1));
+    }
+
+    @Test
+    void testWaypointsReusedUntilAdvance() throws RouteEndException {
+        WaypointInterface next = sut.getNextWaypoint();
+        RouteSegment segment = sut.getCurrentSegment();
+        assertSame(next, sut.getNextWaypoint());
+        assertSame(segment, sut.getSegment(0));
+
+        sut.advanceWaypoint();
+        assertSame(next, sut.getPreviousWaypoint());
+        assertNotSame(segment, sut.getCurrentSegment());
+    }
+
+    @Test
+    void testSetCurrentIndex() {
+        sut.setCurrentIndex(2);
+        assertEquals(2, sut.getCurrentIndex());
+        assertEquals(sut.getLongitude(2), sut.getPreviousWaypoint().getLongitude());
+        assertThrows(IndexOutOfBoundsException.class, () -> sut.setCurrentIndex(WAYPOINT_COUNT - 1));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.lang.Math.toRadians;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedRouteTest extends TestBase {
+    private static final int WAYPOINT_COUNT = 1000;
+    private static final int PAGE_SIZE = 64;
+    private static final int CACHE_PAGES = 2;
+
+    private Path binaryFile;
+    private WaypointColumns waypoints;
+    private PagedRoute sut;
+
+    @BeforeEach
+    void writeRoute() throws IOException {
+        waypoints = new WaypointColumns();
+        for (int i = 0; i < WAYPOINT_COUNT; i++) {
+            waypoints.add(44.9187 + i * 1e-5, -92.8435, 0.0001, i % 10 == 9
+                    ? WaypointInterface.WaypointBehavior.LOITER : WaypointInterface.WaypointBehavior.NEXT_WAYPOINT);
+        }
+        binaryFile = Files.createTempFile("route", ".asvr");
+        RouteBinaryFile.write(waypoints, binaryFile);
+        sut = new PagedRoute(binaryFile, PAGE_SIZE, CACHE_PAGES);
+    }
+
+    @AfterEach
+    void deleteRoute() throws IOException {
+        sut.close();
+        Files.deleteIfExists(binaryFile);
+    }
+
+    @Test
+    void testAdvanceThroughRoute() throws RouteEndException {
+        assertEquals(WAYPOINT_COUNT - 1, sut.getSegmentCount());
+        for (int i = 0; i < sut.getSegmentCount(); i++) {
+            assertEquals(i, sut.getCurrentIndex());
+            assertTrue(WaypointInterface.equals(waypoints.getWaypoint(i), sut.getPreviousWaypoint()));
+            assertTrue(WaypointInterface.equals(waypoints.getWaypoint(i + 1), sut.getNextWaypoint()));
+            if (!sut.isComplete()) {
+                sut.advanceWaypoint();
+            }
+        }
+        assertTrue(sut.isComplete());
+        assertThrows(RouteEndException.class, sut::advanceWaypoint);
+
+        // Each page is read about once when following the route in order
+        int pageCount = (WAYPOINT_COUNT + PAGE_SIZE - 1) / PAGE_SIZE;
+        assertTrue(sut.getPageReadCount() <= 2L * pageCount, "read " + sut.getPageReadCount() + " pages");
+    }
+
+    @Test
+    void testRandomAccessBeyondCache() {
+        for (int index : new int[]{900, 5, 500, 63, 64, WAYPOINT_COUNT - 3}) {
+            sut.setCurrentIndex(index);
+            assertTrue(WaypointInterface.equals(waypoints.getWaypoint(index), sut.getPreviousWaypoint()));
+            assertTrue(WaypointInterface.equals(waypoints.getWaypoint(index + 1), sut.getNextWaypoint()));
+            assertEquals(waypoints.getLatitude(index + 1), sut.getSegment(index + 1).getStartWaypoint().getLatitude());
+        }
+    }
+
+    @Test
+    void testRejoinSearchesNearbyPages() {
+        sut.setCurrentIndex(500);
+        long pageReads = sut.getPageReadCount();
+        RouteProgressEngine engine = new RouteProgressEngine(sut);
+
+        // Halfway along segment 520, which is on the current page
+        assertEquals(520, engine.rejoin(toRadians(waypoints.getLatitude(520) + 0.5e-5),
+                toRadians(waypoints.getLongitude(520) + 1e-6)));
+
+        // Beside segment 900, which is too far away, so the route stays at the nearest segment it searched
+        sut.setCurrentIndex(500);
+        int lastSearched = (500 / PAGE_SIZE + 2) * PAGE_SIZE - 1;
+        assertEquals(lastSearched, engine.rejoin(toRadians(waypoints.getLatitude(900) + 0.5e-5),
+                toRadians(waypoints.getLongitude(900))));
+
+        // Each rejoin searches three pages, never the whole route. A prefetch finishing in between can evict a page
+        // from the two page cache and cause a reread, so the exact count depends on timing.
+        int pageCount = (WAYPOINT_COUNT + PAGE_SIZE - 1) / PAGE_SIZE;
+        long reads = sut.getPageReadCount() - pageReads;
+        assertTrue(reads < pageCount, "read " + reads + " pages");
+    }
+
+    @Test
+    void testCorruptFileRejected() throws IOException {
+        // Let the first prefetch finish before the file is rewritten under it
+        sut.close();
+        byte[] contents = Files.readAllBytes(binaryFile);
+        contents[RouteBinaryFile.HEADER_SIZE + 100] ^= 0x10;
+        Files.write(binaryFile, contents);
+        assertThrows(RouteFormatException.class, () -> new PagedRoute(binaryFile));
+    }
+}
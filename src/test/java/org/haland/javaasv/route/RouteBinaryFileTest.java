@@ -0,0 +1,86 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteBinaryFileTest extends TestBase {
+    private static final String TEST_ROUTE = "src/test/resources/routes/test_route.csv";
+
+    private Path binaryFile;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        binaryFile = Files.createTempFile("route", ".asvr");
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(binaryFile);
+    }
+
+    @Test
+    void testConvertAndRead() throws IOException, RouteParseException {
+        RouteParser.convertFileRoute(new File(TEST_ROUTE), binaryFile.toFile());
+        WaypointColumns expected = RouteFileReader.read(Path.of(TEST_ROUTE));
+        WaypointColumns actual = RouteBinaryFile.read(binaryFile);
+
+        assertEquals(RouteBinaryFile.HEADER_SIZE + expected.size() * RouteBinaryFile.RECORD_SIZE
+                + RouteBinaryFile.CHECKSUM_SIZE, Files.size(binaryFile));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(WaypointInterface.equals(expected.getWaypoint(i), actual.getWaypoint(i)));
+        }
+    }
+
+    @Test
+    void testCorruptionDetected() throws IOException, RouteParseException {
+        RouteParser.convertFileRoute(new File(TEST_ROUTE), binaryFile.toFile());
+        try (RandomAccessFile file = new RandomAccessFile(binaryFile.toFile(), "rw")) {
+            file.seek(RouteBinaryFile.HEADER_SIZE + 3);
+            file.write(file.read() ^ 0x01);
+        }
+        assertThrows(RouteFormatException.class, () -> RouteBinaryFile.read(binaryFile));
+    }
+
+    @Test
+    void testTruncationDetected() throws IOException, RouteParseException {
+        RouteParser.convertFileRoute(new File(TEST_ROUTE), binaryFile.toFile());
+        try (RandomAccessFile file = new RandomAccessFile(binaryFile.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        assertThrows(RouteFormatException.class, () -> RouteBinaryFile.read(binaryFile));
+    }
+
+    @Test
+    void testNotBinaryRoute() {
+        assertThrows(RouteFormatException.class, () -> RouteBinaryFile.read(Path.of(TEST_ROUTE)));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteFileReaderTest extends TestBase {
+    private static WaypointColumns parse(String contents) throws RouteParseException {
+        return RouteFileReader.parse(ByteBuffer.wrap(contents.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void testParse() throws RouteParseException {
+        WaypointColumns waypoints = parse("44.9187, -92.8435, .0001, NEXT_WAYPOINT\r\n"
+                + "\n"
+                + "  -44.5,92.25,1e-4,LOITER  \n"
+                + "+0.1, 0, 3, NEXT_WAYPOINT");
+
+        assertEquals(3, waypoints.size());
+        assertEquals(44.9187, waypoints.getLatitude(0));
+        assertEquals(-92.8435, waypoints.getLongitude(0));
+        assertEquals(0.0001, waypoints.getTolerance(0));
+        assertEquals(WaypointInterface.WaypointBehavior.NEXT_WAYPOINT, waypoints.getBehavior(0));
+        assertEquals(-44.5, waypoints.getLatitude(1));
+        assertEquals(92.25, waypoints.getLongitude(1));
+        assertEquals(1e-4, waypoints.getTolerance(1));
+        assertEquals(WaypointInterface.WaypointBehavior.LOITER, waypoints.getBehavior(1));
+        assertEquals(0.1, waypoints.getLatitude(2));
+    }
+
+    @Test
+    void testMatchesParseDouble() throws RouteParseException {
+        String[] values = {"44.91870000000001", "0.30000000000000004", "12.3456789012345678901", "-0.0",
+                "1.7976931348623157"};
+        for (String value : values) {
+            WaypointColumns waypoints = parse(value + ", 0, 0, LOITER");
+            assertEquals(Double.parseDouble(value), waypoints.getLatitude(0), value);
+        }
+    }
+
+    @Test
+    void testErrorsReportLineNumber() {
+        RouteParseException e = assertThrows(RouteParseException.class,
+                () -> parse("44.9, -92.8, .0001, NEXT_WAYPOINT\n44.9, -92.8, .0001\n"));
+        assertEquals(2, e.getLineNumber());
+
+        e = assertThrows(RouteParseException.class,
+                () -> parse("44.9, -92.8, .0001, NEXT_WAYPOINT\n\n44.9, north, .0001, LOITER\n"));
+        assertEquals(3, e.getLineNumber());
+        assertTrue(e.getMessage().contains("longitude"));
+
+        e = assertThrows(RouteParseException.class, () -> parse("44.9, -92.8, .0001, STOP\n"));
+        assertEquals(1, e.getLineNumber());
+    }
+
+    @Test
+    void testRejectsInvalidCoordinates() {
+        String[] lines = {"NaN, -92.8, .0001, LOITER", "44.9, Infinity, .0001, LOITER", "90.5, -92.8, .0001, LOITER",
+                "44.9, -180.01, .0001, LOITER", "44.9, -92.8, NaN, LOITER"};
+        for (String line : lines) {
+            RouteParseException e = assertThrows(RouteParseException.class,
+                    () -> parse("44.9, -92.8, .0001, NEXT_WAYPOINT\n" + line + "\n"), line);
+            assertEquals(2, e.getLineNumber(), line);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.TestBase;
+import org.haland.javaasv.util.EarthRadius;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Math.toRadians;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteProgressEngineTest extends TestBase {
+    // Waypoints every 0.0001 degrees of longitude along the equator, about 11 m apart
+    private static final int WAYPOINT_COUNT = 1000;
+    private static final double SPACING = 0.0001;
+    // Two meters, in nmi
+    private static final double TOLERANCE = 2.0 / 1852;
+
+    private SegmentedRoute route;
+    private RouteProgressEngine sut;
+
+    @BeforeEach
+    void setupRoute() {
+        route = new SegmentedRoute();
+        for (int i = 0; i < WAYPOINT_COUNT; i++) {
+            route.addWaypoint(new Waypoint(0, i * SPACING, TOLERANCE, WaypointInterface.WaypointBehavior.NEXT_WAYPOINT));
+        }
+        sut = new RouteProgressEngine(route, 4);
+    }
+
+    private boolean updateAt(double lat, double lon) {
+        return sut.update(toRadians(lat), toRadians(lon));
+    }
+
+    @Test
+    void testStaysOnSegmentBeforeWaypoint() {
+        assertFalse(updateAt(0.00001, 0.5 * SPACING));
+        assertEquals(0, route.getCurrentIndex());
+    }
+
+    @Test
+    void testAdvancesAtWaypoint() {
+        assertFalse(updateAt(0, SPACING));
+        assertEquals(1, route.getCurrentIndex());
+    }
+
+    @Test
+    void testRecoversFromOvershoot() {
+        // Well off the track and past the end waypoint without ever being within tolerance of it
+        assertFalse(updateAt(0.00005, 1.5 * SPACING));
+        assertEquals(1, route.getCurrentIndex());
+    }
+
+    @Test
+    void testLookAheadBoundsAdvance() {
+        assertFalse(updateAt(0, 10.5 * SPACING));
+        assertEquals(4, route.getCurrentIndex());
+        assertFalse(updateAt(0, 10.5 * SPACING));
+        assertEquals(8, route.getCurrentIndex());
+        assertFalse(updateAt(0, 10.5 * SPACING));
+        assertEquals(10, route.getCurrentIndex());
+    }
+
+    @Test
+    void testStopsAtLoiterWaypoint() {
+        route = new SegmentedRoute(
+                new Waypoint(0, 0, TOLERANCE, WaypointInterface.WaypointBehavior.NEXT_WAYPOINT),
+                new Waypoint(0, SPACING, TOLERANCE, WaypointInterface.WaypointBehavior.LOITER),
+                new Waypoint(0, 2 * SPACING, TOLERANCE, WaypointInterface.WaypointBehavior.NEXT_WAYPOINT));
+        sut = new RouteProgressEngine(route);
+
+        assertTrue(updateAt(0, 1.5 * SPACING));
+        assertEquals(0, route.getCurrentIndex());
+    }
+
+    @Test
+    void testRouteComplete() {
+        route.setCurrentIndex(WAYPOINT_COUNT - 3);
+        assertFalse(updateAt(0, (WAYPOINT_COUNT - 2) * SPACING));
+        assertTrue(updateAt(0, (WAYPOINT_COUNT - 1) * SPACING));
+        assertEquals(WAYPOINT_COUNT - 2, route.getCurrentIndex());
+    }
+}
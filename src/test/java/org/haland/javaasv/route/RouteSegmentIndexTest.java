@@ -0,0 +1,108 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.route;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static java.lang.Math.toRadians;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteSegmentIndexTest extends TestBase {
+    // Lawnmower survey pattern of 100 legs, each of 100 waypoints
+    private static final int LEGS = 100;
+    private static final int WAYPOINTS_PER_LEG = 100;
+    private static final double LAT = 44.9187;
+    private static final double LONG = -92.8435;
+    private static final double SPACING = 0.00005;
+    private static final int QUERIES = 500;
+
+    private static SegmentedRoute route;
+    private static RouteSegmentIndex sut;
+
+    @BeforeAll
+    static void setupIndex() {
+        route = new SegmentedRoute();
+        for (int leg = 0; leg < LEGS; leg++) {
+            for (int i = 0; i < WAYPOINTS_PER_LEG; i++) {
+                int column = leg % 2 == 0 ? i : WAYPOINTS_PER_LEG - 1 - i;
+                route.addWaypoint(new Waypoint(LAT + leg * SPACING * 4, LONG + column * SPACING, 0.0001,
+                        WaypointInterface.WaypointBehavior.NEXT_WAYPOINT));
+            }
+        }
+        sut = new RouteSegmentIndex(route);
+    }
+
+    private static double distanceTo(int segment, double lat, double lon) {
+        double x = Math.cos(lat) * Math.cos(lon);
+        double y = Math.cos(lat) * Math.sin(lon);
+        double z = Math.sin(lat);
+        return route.getSegment(segment).angularDistanceTo(x, y, z);
+    }
+
+    @Test
+    void testNearestSegmentMatchesLinearScan() {
+        Random random = new Random(42);
+        for (int query = 0; query < QUERIES; query++) {
+            // Include positions outside the route's bounding box
+            double lat = toRadians(LAT + (random.nextDouble() * 1.2 - 0.1) * LEGS * SPACING * 4);
+            double lon = toRadians(LONG + (random.nextDouble() * 1.2 - 0.1) * WAYPOINTS_PER_LEG * SPACING);
+
+            int expected = 0;
+            for (int i = 1; i < route.getSegmentCount(); i++) {
+                if (distanceTo(i, lat, lon) < distanceTo(expected, lat, lon)) {
+                    expected = i;
+                }
+            }
+            assertEquals(expected, sut.nearestSegment(lat, lon));
+        }
+    }
+
+    @Test
+    void testSegmentsWithinMatchesLinearScan() {
+        Random random = new Random(7);
+        for (int query = 0; query < QUERIES; query++) {
+            double lat = toRadians(LAT + random.nextDouble() * LEGS * SPACING * 4);
+            double lon = toRadians(LONG + random.nextDouble() * WAYPOINTS_PER_LEG * SPACING);
+            double radius = toRadians(random.nextDouble() * SPACING * 10);
+
+            int[] expected = IntStream.range(0, route.getSegmentCount())
+                    .filter(i -> distanceTo(i, lat, lon) <= radius).toArray();
+            assertArrayEquals(expected, sut.segmentsWithin(lat, lon, radius));
+        }
+    }
+
+    @Test
+    void testRejoin() {
+        SegmentedRoute copy = new SegmentedRoute(route);
+        RouteProgressEngine engine = new RouteProgressEngine(copy);
+
+        // Just beside the middle of a segment on the third leg, which is eastbound
+        int expected = 2 * WAYPOINTS_PER_LEG + WAYPOINTS_PER_LEG / 2;
+        WaypointInterface waypoint = copy.getWaypoint(expected);
+        assertEquals(expected, engine.rejoin(toRadians(waypoint.getLatitude() + SPACING / 10),
+                toRadians(waypoint.getLongitude() + SPACING / 2)));
+        assertEquals(expected, copy.getCurrentIndex());
+    }
+}
@@ -0,0 +1,96 @@
+package org.haland.javaasv.util;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRingBufferTest extends TestBase {
+    private static final int CAPACITY = 16;
+    private static final int STREAM_LENGTH = 10_000_000;
+
+    @Test
+    void testWrapAround() {
+        ByteRingBuffer sut = new ByteRingBuffer(CAPACITY);
+        byte[] data = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        byte[] out = new byte[CAPACITY];
+
+        assertEquals(10, sut.write(data, 0, 10));
+        assertEquals(10, sut.read(out, 0, 10));
+
+        // The next write crosses the end of the array
+        assertEquals(10, sut.write(data, 0, 10));
+        assertEquals(10, sut.size());
+        assertEquals(10, sut.read(out, 0, CAPACITY));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(data[i], out[i]);
+        }
+        assertEquals(0, sut.read(out, 0, CAPACITY));
+    }
+
+    @Test
+    void testWriteWhenFull() {
+        ByteRingBuffer sut = new ByteRingBuffer(CAPACITY);
+        byte[] data = new byte[CAPACITY + 4];
+
+        assertEquals(CAPACITY, sut.write(data, 0, data.length));
+        assertEquals(0, sut.write(data, 0, 1));
+        assertEquals(CAPACITY, sut.size());
+    }
+
+    @Test
+    void testOfferIsAllOrNothing() {
+        ByteRingBuffer sut = new ByteRingBuffer(CAPACITY);
+        byte[] data = new byte[CAPACITY / 2 + 1];
+
+        assertTrue(sut.offer(data, 0, data.length));
+        assertFalse(sut.offer(data, 0, data.length));
+        assertEquals(data.length, sut.size());
+    }
+
+    @Test
+    void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteRingBuffer(12));
+        assertThrows(IllegalArgumentException.class, () -> new ByteRingBuffer(0));
+    }
+
+    @Test
+    void testProducerConsumer() throws InterruptedException {
+        ByteRingBuffer sut = new ByteRingBuffer(CAPACITY * 64);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread consumer = new Thread(() -> {
+            byte[] out = new byte[100];
+            int expected = 0;
+            while (expected < STREAM_LENGTH) {
+                int count = sut.read(out, 0, out.length);
+                for (int i = 0; i < count; i++, expected++) {
+                    if (out[i] != (byte) expected) {
+                        failure.compareAndSet(null, "byte " + expected + " was " + out[i]);
+                        return;
+                    }
+                }
+            }
+        });
+        consumer.start();
+
+        byte[] data = new byte[37];
+        int next = 0;
+        while (next < STREAM_LENGTH && consumer.isAlive()) {
+            int length = Math.min(data.length, STREAM_LENGTH - next);
+            for (int i = 0; i < length; i++) {
+                data[i] = (byte) (next + i);
+            }
+            int written = 0;
+            while (written < length && consumer.isAlive()) {
+                written += sut.write(data, written, length - written);
+            }
+            next += length;
+        }
+        consumer.join();
+
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,70 @@
+package org.haland.javaasv.util;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedRateTimerTest extends TestBase {
+    private static final long PERIOD_MILLIS = 5;
+    private static final int CYCLES = 20;
+
+    @Test
+    void testWorkDoesNotStretchPeriod() throws InterruptedException {
+        FixedRateTimer sut = new FixedRateTimer(PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        sut.start();
+        for (int i = 0; i < CYCLES; i++) {
+            // Work for a little over half of each period
+            Thread.sleep(PERIOD_MILLIS / 2 + 1);
+            sut.awaitNextDeadline();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Sleeping after the work would take about 1.6 times as long
+        assertTrue(elapsedMillis >= CYCLES * PERIOD_MILLIS, "took " + elapsedMillis + " ms");
+        assertTrue(elapsedMillis < CYCLES * PERIOD_MILLIS * 1.4, "took " + elapsedMillis + " ms");
+        assertEquals(CYCLES, sut.getCycleCount());
+        assertTrue(sut.getMaxJitterNanos() >= 0);
+    }
+
+    @Test
+    void testOverrunSkipsMissedDeadlines() throws InterruptedException {
+        // A virtual clock, so that a busy machine cannot stretch the wait after the overrun
+        VirtualClock clock = new VirtualClock();
+        FixedRateTimer sut = new FixedRateTimer(PERIOD_MILLIS, TimeUnit.MILLISECONDS, clock);
+        sut.start();
+        clock.advance(PERIOD_MILLIS * 3 + PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS);
+        sut.awaitNextDeadline();
+
+        assertEquals(1, sut.getOverrunCount());
+        // The next deadline is the next one on the original schedule, not a full period after the overrun
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(PERIOD_MILLIS * 4), clock.nanoTime());
+    }
+
+    @Test
+    void testVirtualClock() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        FixedRateTimer sut = new FixedRateTimer(PERIOD_MILLIS, TimeUnit.MILLISECONDS, clock);
+        sut.start();
+        for (int i = 0; i < CYCLES; i++) {
+            sut.awaitNextDeadline();
+        }
+
+        // Each deadline is reached exactly, without waiting in real time
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(CYCLES * PERIOD_MILLIS), clock.nanoTime());
+        assertEquals(0, sut.getMaxJitterNanos());
+
+        clock.advance(PERIOD_MILLIS * 5 / 2, TimeUnit.MILLISECONDS);
+        sut.awaitNextDeadline();
+        assertEquals(1, sut.getOverrunCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos((CYCLES + 3) * PERIOD_MILLIS), clock.nanoTime());
+    }
+
+    @Test
+    void testInvalidPeriod() {
+        assertThrows(IllegalArgumentException.class, () -> new FixedRateTimer(0, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,85 @@
+package org.haland.javaasv.util;
+
+import org.haland.javaasv.TestBase;
+import org.haland.javaasv.route.RouteSegment;
+import org.haland.javaasv.route.Waypoint;
+import org.haland.javaasv.route.WaypointInterface;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Math.toDegrees;
+import static java.lang.Math.toRadians;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NavigationKernelTest extends TestBase {
+    private static final double[] JFK_LOCATION = {40.63, -73.78};
+    private static final double[] LAX_LOCATION = {33.95, -118.40};
+    private static final double[] CURRENT_LOCATION = {34.5, -116.5};
+    private static final double TOLERANCE = 0.001;
+
+    private NavigationKernel kernel;
+
+    @BeforeEach
+    void setupKernel() {
+        kernel = new NavigationKernel();
+        kernel.setSegment(createSegment(LAX_LOCATION, JFK_LOCATION));
+    }
+
+    private static RouteSegment createSegment(double[] start, double[] end) {
+        return new RouteSegment(new Waypoint(start, 0, WaypointInterface.WaypointBehavior.NEXT_WAYPOINT),
+                new Waypoint(end, 0, WaypointInterface.WaypointBehavior.NEXT_WAYPOINT));
+    }
+
+    @Test
+    void testMatchesPilotUtil() {
+        kernel.update(toRadians(CURRENT_LOCATION[0]), toRadians(CURRENT_LOCATION[1]));
+
+        assertEquals(PilotUtil.calculateInitialBearing(CURRENT_LOCATION, JFK_LOCATION),
+                toDegrees(kernel.getBearingToNext()), TOLERANCE);
+        assertEquals(PilotUtil.calculateDistance(CURRENT_LOCATION, JFK_LOCATION),
+                kernel.getDistanceToNext(EarthRadius.NMI), TOLERANCE);
+        assertEquals(PilotUtil.calculateCrossTrackDistance(LAX_LOCATION, JFK_LOCATION, CURRENT_LOCATION),
+                kernel.getCrossTrackDistance(EarthRadius.NMI), TOLERANCE);
+        assertEquals(PilotUtil.calculateInitialBearingRadians(LAX_LOCATION, JFK_LOCATION),
+                kernel.getSegment().getBearing(), 1e-12);
+    }
+
+    @Test
+    void testCrossTrackSign() {
+        // North of an eastbound path is to the left
+        kernel.setSegment(createSegment(new double[]{0, 0}, new double[]{0, 1}));
+        kernel.update(toRadians(0.01), toRadians(0.5));
+        assertEquals(-PilotUtil.calculateCrossTrackDistance(new double[]{0, 0}, new double[]{0, 1},
+                new double[]{-0.01, 0.5}, EarthRadius.METERS), kernel.getCrossTrackDistance(EarthRadius.METERS),
+                TOLERANCE);
+        assertEquals(PilotUtil.calculateInitialBearingRadians(new double[]{0.01, 0.5}, new double[]{0, 1}),
+                kernel.getBearingToNext(), 1e-12);
+    }
+
+    @Test
+    void testAlongTrackDistance() {
+        kernel.setSegment(createSegment(new double[]{0, 0}, new double[]{0, 1}));
+
+        // Abeam the middle of the segment
+        kernel.update(toRadians(-0.01), toRadians(0.5));
+        assertEquals(toRadians(0.5), kernel.getAlongTrackAngle(), 1e-9);
+
+        // Behind the start waypoint
+        kernel.update(0, toRadians(-0.25));
+        assertEquals(toRadians(-0.25), kernel.getAlongTrackAngle(), 1e-9);
+
+        // Past the end waypoint
+        kernel.update(0, toRadians(1.5));
+        assertEquals(toRadians(1), kernel.getSegment().getAngularLength(), 1e-12);
+        assertEquals(toRadians(1.5), kernel.getAlongTrackAngle(), 1e-9);
+    }
+
+    @Test
+    void testShortDistancePrecision() {
+        // One meter north of the waypoint should still resolve to one meter
+        double oneMeter = 1 / EarthRadius.METERS.getValue();
+        kernel.setSegment(createSegment(new double[]{44.9187, -92.8435}, new double[]{44.9187, -92.8439}));
+        kernel.update(toRadians(44.9187) + oneMeter, toRadians(-92.8439));
+        assertEquals(1, kernel.getDistanceToNext(EarthRadius.METERS), 1e-6);
+    }
+}
@@ -1,7 +1,12 @@
 package org.haland.javaasv.util;
 
+import org.haland.javaasv.controller.PIDController;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 class PIDControllerTest {
 
     @Test
@@ -11,6 +16,16 @@ class PIDControllerTest {
 
     @Test
     void testCalculateNextOutput() {
+        VirtualClock clock = new VirtualClock();
+        PIDController sut = new PIDController(1, 0, 1);
+        sut.setClock(clock);
+        sut.start();
+
+        clock.advance(500, TimeUnit.MILLISECONDS);
+        // Proportional term of 1 plus a derivative of 1 over half a second
+        assertEquals(3, sut.calculateNextOutput(-1), 1e-9);
 
+        // No time has passed, so the derivative cannot be updated
+        assertEquals(3, sut.calculateNextOutput(-1), 1e-9);
     }
-}
\ No newline at end of file
+}
@@ -32,6 +32,22 @@ class PilotUtilTest extends TestBase {
                 CURRENT_LOCATION, EarthRadius.NMI), TOLERANCE);
     }
 
+    @Test
+    void testPrimitiveOverloadsMatchArrays() {
+        double laxLat = Math.toRadians(LAX_LOCATION[0]);
+        double laxLong = Math.toRadians(LAX_LOCATION[1]);
+        double jfkLat = Math.toRadians(JFK_LOCATION[0]);
+        double jfkLong = Math.toRadians(JFK_LOCATION[1]);
+
+        assertEquals(PilotUtil.calculateInitialBearingRadians(LAX_LOCATION, JFK_LOCATION),
+                PilotUtil.calculateInitialBearingRadians(laxLat, laxLong, jfkLat, jfkLong), 1e-12);
+        assertEquals(PilotUtil.calculateAngularDistance(LAX_LOCATION, JFK_LOCATION),
+                PilotUtil.calculateAngularDistance(laxLat, laxLong, jfkLat, jfkLong), 1e-12);
+        assertEquals(EXPECTED_CROSS_TRACK_ERROR, PilotUtil.calculateCrossTrackAngle(laxLat, laxLong, jfkLat, jfkLong,
+                Math.toRadians(CURRENT_LOCATION[0]), Math.toRadians(CURRENT_LOCATION[1])) * EarthRadius.NMI.getValue(),
+                TOLERANCE);
+    }
+
     @Test
     void testHav() {
     }
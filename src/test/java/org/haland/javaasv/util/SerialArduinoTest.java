@@ -1,5 +1,158 @@
 package org.haland.javaasv.util;
 
-class SerialArduinoTest {
+import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortEvent;
+import com.fazecast.jSerialComm.SerialPortMessageListener;
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
-}
\ No newline at end of file
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialArduinoTest extends TestBase {
+    // Never opened, so nothing is written to a real device
+    private static final String PORT_NAME = "/dev/ttyTEST0";
+    private static final int OUTBOUND_CAPACITY = 4096;
+    private static final int INBOUND_CAPACITY = 256;
+
+    private SerialArduino sut;
+    private ByteArrayOutputStream written;
+    private CountDownLatch firstWriteStarted;
+    private CountDownLatch firstWriteReleased;
+
+    @BeforeEach
+    void setupArduino() {
+        written = new ByteArrayOutputStream();
+        firstWriteStarted = new CountDownLatch(1);
+        firstWriteReleased = new CountDownLatch(1);
+
+        // Holds the first write until released, so that later sends queue up behind it
+        sut = new SerialArduino(PORT_NAME) {
+            @Override
+            int writeBytes(byte[] buffer, int length, int offset) {
+                if (firstWriteStarted.getCount() > 0) {
+                    firstWriteStarted.countDown();
+                    try {
+                        firstWriteReleased.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                written.write(buffer, offset, length);
+                return length;
+            }
+        };
+    }
+
+    @AfterEach
+    void teardownArduino() {
+        firstWriteReleased.countDown();
+        sut.closePort();
+    }
+
+    @Test
+    void testSendBeforeOpen() {
+        assertEquals(-1, sut.sendSerialData(bytes("a\n")));
+    }
+
+    @Test
+    void testWritesCoalesce() throws InterruptedException {
+        sut.startIO();
+        assertEquals(2, sut.sendSerialData(bytes("a\n")));
+        assertTrue(firstWriteStarted.await(1, TimeUnit.SECONDS));
+
+        // These queue while the first write is in progress, and go out together in the next write
+        assertEquals(2, sut.sendSerialData(bytes("b\n")));
+        assertEquals(2, sut.sendSerialData(bytes("c\n")));
+        assertEquals(2, sut.sendSerialData(bytes("xyz\n"), 2));
+        firstWriteReleased.countDown();
+
+        // Closing waits for pending data to be written
+        assertTrue(sut.closePort());
+        assertEquals("a\nb\nc\nxy", written.toString(StandardCharsets.US_ASCII));
+        assertEquals(8, sut.getBytesWritten());
+        assertEquals(2, sut.getWriteCount());
+        assertEquals(0, sut.getMessagesDropped());
+    }
+
+    @Test
+    void testDropWhenFull() throws InterruptedException {
+        byte[] message = new byte[OUTBOUND_CAPACITY / 4];
+        sut.startIO();
+        assertEquals(message.length, sut.sendSerialData(message));
+        assertTrue(firstWriteStarted.await(1, TimeUnit.SECONDS));
+
+        // The first message has left the buffer, so four more fill it
+        for (int i = 0; i < 4; i++) {
+            assertEquals(message.length, sut.sendSerialData(message));
+        }
+        assertEquals(-1, sut.sendSerialData(message));
+        assertEquals(-1, sut.sendSerialData(message, 1));
+        assertEquals(2, sut.getMessagesDropped());
+
+        firstWriteReleased.countDown();
+        sut.closePort();
+        assertEquals(5L * message.length, sut.getBytesWritten());
+    }
+
+    @Test
+    void testSendAfterClose() {
+        sut.startIO();
+        sut.closePort();
+        assertEquals(-1, sut.sendSerialData(bytes("a\n")));
+        assertEquals(0, sut.getBytesWritten());
+        assertEquals(0, sut.getMessagesDropped());
+    }
+
+    @Test
+    void testMessageListener() {
+        SerialPortMessageListener listener = sut.getMessageListener();
+        assertArrayEquals(bytes(SerialUtil.END_MESSAGE_CHAR), listener.getMessageDelimiter());
+        assertTrue(listener.delimiterIndicatesEndOfMessage());
+        assertEquals(SerialPort.LISTENING_EVENT_DATA_RECEIVED, listener.getListeningEvents());
+    }
+
+    @Test
+    void testMessagesTakenInOrder() {
+        assertFalse(sut.isMessageAvailable());
+        assertNull(sut.getLastMessage());
+
+        receive("a\n");
+        receive("b\n");
+        assertTrue(sut.isMessageAvailable());
+        assertArrayEquals(bytes("a\n"), sut.getLastMessage());
+        assertArrayEquals(bytes("b\n"), sut.getLastMessage());
+        assertFalse(sut.isMessageAvailable());
+        assertNull(sut.getLastMessage());
+    }
+
+    @Test
+    void testOldestMessageDroppedWhenFull() {
+        for (int i = 0; i <= INBOUND_CAPACITY; i++) {
+            receive(i + "\n");
+        }
+        assertEquals(1, sut.getFramesDropped());
+
+        // Message 0 made room for the last one
+        for (int i = 1; i <= INBOUND_CAPACITY; i++) {
+            assertArrayEquals(bytes(i + "\n"), sut.getLastMessage());
+        }
+        assertFalse(sut.isMessageAvailable());
+    }
+
+    private void receive(String message) {
+        SerialPort port = SerialPort.getCommPort(PORT_NAME);
+        sut.getMessageListener().serialEvent(
+                new SerialPortEvent(port, SerialPort.LISTENING_EVENT_DATA_RECEIVED, bytes(message)));
+    }
+
+    private static byte[] bytes(String message) {
+        return message.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of JavaASV, an open-source ASV navigation controller.
+ * Copyright (C) 2021  Max Haland
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.haland.javaasv.util;
+
+import org.haland.javaasv.TestBase;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link SerialUtil}
+ */
+class SerialUtilTest extends TestBase {
+    private static final int DECIMALS = 4;
+    private static final String HELM_MESSAGE = "<0.73,-22.5>";
+
+    private static String format(double value) {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        SerialUtil.putFixedPoint(buffer, value, DECIMALS);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void testPutFixedPoint() {
+        assertEquals("0.75", format(0.75));
+        assertEquals("25.0", format(25.0));
+        assertEquals("-25.0", format(-25.0));
+        assertEquals("0.0", format(0));
+        assertEquals("0.0005", format(0.0005));
+        assertEquals("1.2346", format(1.23456));
+        assertEquals("-0.1", format(-0.1));
+        assertEquals("100.0", format(99.99999));
+        assertEquals("0.0", format(-0.00001));
+    }
+
+    @Test
+    void testPutFixedPointLargeValues() {
+        assertEquals(Double.toString(1e15), format(1e15));
+        assertEquals(Double.toString(Double.NaN), format(Double.NaN));
+    }
+
+    @Test
+    void testParseMessageValue() {
+        assertEquals(0.73, SerialUtil.parseMessageValue(HELM_MESSAGE, 0));
+        assertEquals(-22.5, SerialUtil.parseMessageValue(HELM_MESSAGE, 1));
+    }
+}